@@ -0,0 +1,177 @@
+package de.starrunner.sweethome3d.benchmark;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Measures the time and the allocated memory of one operation.
+ *
+ * Each operation is measured on its own, so {@link #prepare()} and {@link #cleanUp()} are not part of the result.
+ * The operation is repeated during a warm up period first and measured afterwards for a fixed period, but at least
+ * for a minimum count of operations.
+ *
+ * The allocated memory is only available on VMs that implement {@code com.sun.management.ThreadMXBean}. Only the
+ * allocations of the current thread are counted, calculations in other threads (like the parallel calculation of
+ * huge transformations) are not included.
+ *
+ * Operations without side effects have to pass their results to {@link #consume(Object)} or {@link #consume(double)},
+ * otherwise the JIT compiler may remove the measured work. The {@link #getChecksum() checksum} of the consumed values
+ * should be printed after all benchmarks.
+ *
+ * Copyright (c) 2016 by Tobias Liefke
+ *
+ * @author Tobias Liefke
+ */
+public abstract class Benchmark {
+
+  private static final long WARMUP_NANOS = Long.getLong("benchmark.warmup", 1000) * 1000000L;
+  private static final long MEASURE_NANOS = Long.getLong("benchmark.measure", 3000) * 1000000L;
+  private static final int MIN_OPERATIONS = Integer.getInteger("benchmark.minOperations", 5);
+
+  /** The last consumed object, volatile to keep the JIT compiler from removing its creation. */
+  private static volatile Object sink;
+
+  /** The sum of all consumed values. */
+  private static volatile double checksum;
+
+  private final String name;
+
+  /**
+   * Creates a new instance of Benchmark.
+   *
+   * @param name the name of the benchmark
+   */
+  protected Benchmark(String name) {
+    this.name = name;
+  }
+
+  /**
+   * The name of this benchmark.
+   *
+   * @return the name
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Keeps the result of an operation alive.
+   *
+   * @param result the result of the measured operation
+   */
+  protected static void consume(Object result) {
+    sink = result;
+  }
+
+  /**
+   * Adds a calculated value to the checksum.
+   *
+   * @param value the value calculated by the measured operation
+   */
+  protected static void consume(double value) {
+    checksum += value;
+  }
+
+  /**
+   * The sum of all consumed values.
+   *
+   * @return the checksum, including the existence of the last consumed object
+   */
+  public static double getChecksum() {
+    return sink == null ? checksum : checksum + 1;
+  }
+
+  /**
+   * Initializes the data for the given count of items.
+   *
+   * @param size the count of items
+   */
+  protected abstract void setUp(int size);
+
+  /**
+   * Called before each operation, not measured.
+   */
+  protected void prepare() {
+    // Nothing to prepare by default
+  }
+
+  /**
+   * Executes the measured operation.
+   *
+   * @param iteration the count of previous operations for the current size
+   */
+  protected abstract void run(int iteration);
+
+  /**
+   * Called after each operation, not measured.
+   */
+  protected void cleanUp() {
+    // Nothing to clean up by default
+  }
+
+  /**
+   * Releases the data of the current size.
+   */
+  protected void tearDown() {
+    // Nothing to release by default
+  }
+
+  /**
+   * Runs this benchmark for the given count of items and prints the result.
+   *
+   * @param size the count of items
+   * @param out the stream for the result
+   */
+  public void execute(int size, PrintStream out) {
+    setUp(size);
+    try {
+      ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+      com.sun.management.ThreadMXBean allocationBean = threadBean instanceof com.sun.management.ThreadMXBean
+          && ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemorySupported()
+          ? (com.sun.management.ThreadMXBean) threadBean : null;
+      long threadId = Thread.currentThread().getId();
+
+      // Warm up
+      int iteration = 0;
+      long end = System.nanoTime() + WARMUP_NANOS;
+      do {
+        prepare();
+        run(iteration++);
+        cleanUp();
+      } while (System.nanoTime() < end);
+
+      // Measure
+      int operations = 0;
+      long nanos = 0;
+      long allocatedBytes = 0;
+      end = System.nanoTime() + MEASURE_NANOS;
+      do {
+        prepare();
+        long startBytes = allocationBean == null ? 0 : allocationBean.getThreadAllocatedBytes(threadId);
+        long startNanos = System.nanoTime();
+        run(iteration++);
+        nanos += System.nanoTime() - startNanos;
+        if (allocationBean != null) {
+          allocatedBytes += allocationBean.getThreadAllocatedBytes(threadId) - startBytes;
+        }
+        cleanUp();
+        operations++;
+      } while (operations < MIN_OPERATIONS || System.nanoTime() < end);
+
+      // Report
+      double millisPerOperation = nanos / 1e6 / operations;
+      if (allocationBean == null) {
+        out.printf("%-32s %8d %12.3f ms/op %14s B/op %10s MB/s%n", name, size, millisPerOperation, "n/a", "n/a");
+      } else {
+        double bytesPerOperation = (double) allocatedBytes / operations;
+        double allocationRate = nanos == 0 ? 0 : allocatedBytes / (nanos / 1e9) / (1024 * 1024);
+        out.printf("%-32s %8d %12.3f ms/op %14.0f B/op %10.1f MB/s%n", name, size, millisPerOperation,
+          bytesPerOperation, allocationRate);
+      }
+    } finally {
+      tearDown();
+    }
+  }
+
+}
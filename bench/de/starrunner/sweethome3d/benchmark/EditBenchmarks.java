@@ -0,0 +1,217 @@
+package de.starrunner.sweethome3d.benchmark;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.eteks.sweethome3d.model.Home;
+import com.eteks.sweethome3d.model.Wall;
+
+import de.starrunner.sweethome3d.ConnectWallsEdit;
+import de.starrunner.sweethome3d.ElevationEdit;
+import de.starrunner.sweethome3d.RoomDetector;
+import de.starrunner.sweethome3d.TransformEdit;
+
+/**
+ * Benchmarks for the edits of the plugin.
+ *
+ * Usage: {@code java -cp bin:SweetHome3D.jar de.starrunner.sweethome3d.benchmark.EditBenchmarks [size...]}
+ *
+ * Runs every benchmark for every given count of items (default: 1000, 10000 and 100000) and prints the time per
+ * operation and the allocation rate, followed by the checksum of all results. The periods are configured with the
+ * system properties {@code benchmark.warmup} and {@code benchmark.measure} (in ms).
+ *
+ * Copyright (c) 2016 by Tobias Liefke
+ *
+ * @author Tobias Liefke
+ */
+public final class EditBenchmarks {
+
+  private EditBenchmarks() {
+    // Only static methods
+  }
+
+  /**
+   * Runs all benchmarks.
+   *
+   * @param args the counts of items, if not the default counts
+   */
+  public static void main(String[] args) {
+    int[] sizes;
+    if (args.length == 0) {
+      sizes = new int[] { 1000, 10000, 100000 };
+    } else {
+      sizes = new int[args.length];
+      for (int i = 0; i < args.length; i++) {
+        sizes[i] = Integer.parseInt(args[i]);
+      }
+    }
+    for (Benchmark benchmark : createBenchmarks()) {
+      for (int size : sizes) {
+        benchmark.execute(size, System.out);
+      }
+    }
+    System.out.println("Checksum: " + Benchmark.getChecksum());
+  }
+
+  /**
+   * Creates all benchmarks.
+   *
+   * @return the benchmarks
+   */
+  private static List<Benchmark> createBenchmarks() {
+    List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+
+    benchmarks.add(new Benchmark("TransformEdit.<init>") {
+      private Home home;
+
+      @Override
+      protected void setUp(int size) {
+        home = HomeGenerator.createHome(size);
+      }
+
+      @Override
+      protected void run(int iteration) {
+        consume(new TransformEdit("Benchmark", home));
+      }
+    });
+
+    benchmarks.add(new TransformBenchmark("TransformEdit.transform") {
+      @Override
+      protected void run(int iteration) {
+        edit.transform(createRotation(iteration));
+      }
+    });
+
+    benchmarks.add(new TransformBenchmark("TransformEdit.undoAction") {
+      private int preparations;
+
+      @Override
+      protected void prepare() {
+        edit.transform(createRotation(preparations++));
+      }
+
+      @Override
+      protected void run(int iteration) {
+        edit.undoAction();
+      }
+    });
+
+    benchmarks.add(new TransformBenchmark("TransformEdit.getBounds") {
+      @Override
+      protected void run(int iteration) {
+        Rectangle2D.Float bounds = edit.getBounds();
+        consume(bounds.x + bounds.y + bounds.width + bounds.height);
+      }
+    });
+
+    benchmarks.add(new Benchmark("ElevationEdit.elevate") {
+      private ElevationEdit edit;
+
+      @Override
+      protected void setUp(int size) {
+        edit = new ElevationEdit(HomeGenerator.createHome(size));
+      }
+
+      @Override
+      protected void run(int iteration) {
+        edit.elevate(iteration % 100 + 1);
+      }
+
+      @Override
+      protected void tearDown() {
+        edit = null;
+      }
+    });
+
+    benchmarks.add(new Benchmark("ConnectWallsEdit.doAction") {
+      private List<Wall> walls;
+      private ConnectWallsEdit edit;
+
+      @Override
+      protected void setUp(int size) {
+        walls = Home.getWallsSubList(HomeGenerator.createHome(size).getSelectedItems());
+      }
+
+      @Override
+      protected void run(int iteration) {
+        // Same as ConnectWallsAction, without posting the edit
+        edit = new ConnectWallsEdit(walls);
+        edit.doAction();
+      }
+
+      @Override
+      protected void cleanUp() {
+        edit.undoAction();
+        edit = null;
+      }
+
+      @Override
+      protected void tearDown() {
+        walls = null;
+      }
+    });
+
+    benchmarks.add(new Benchmark("RoomDetector.detectRooms") {
+      private List<Wall> walls;
+
+      @Override
+      protected void setUp(int size) {
+        walls = Home.getWallsSubList(HomeGenerator.createHome(size).getSelectedItems());
+      }
+
+      @Override
+      protected void run(int iteration) {
+        consume(new RoomDetector(walls).detectRooms(iteration % 2 == 0));
+      }
+
+      @Override
+      protected void tearDown() {
+        walls = null;
+      }
+    });
+
+    return benchmarks;
+  }
+
+  /**
+   * Base class for benchmarks of an existing transform edit.
+   */
+  private abstract static class TransformBenchmark extends Benchmark {
+    protected TransformEdit edit;
+    private Rectangle2D.Float bounds;
+
+    /**
+     * Creates a new instance of TransformBenchmark.
+     *
+     * @param name the name of the benchmark
+     */
+    protected TransformBenchmark(String name) {
+      super(name);
+    }
+
+    @Override
+    protected void setUp(int size) {
+      edit = new TransformEdit("Benchmark", HomeGenerator.createHome(size));
+      bounds = edit.getBounds();
+    }
+
+    /**
+     * Creates a rotation around the center of the items, with a different angle for each iteration.
+     *
+     * @param iteration the current iteration
+     * @return the rotation
+     */
+    protected AffineTransform createRotation(int iteration) {
+      return AffineTransform.getRotateInstance(Math.toRadians(iteration % 359 + 1), bounds.getCenterX(),
+        bounds.getCenterY());
+    }
+
+    @Override
+    protected void tearDown() {
+      edit = null;
+    }
+  }
+
+}
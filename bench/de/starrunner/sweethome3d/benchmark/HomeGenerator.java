@@ -0,0 +1,120 @@
+package de.starrunner.sweethome3d.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.eteks.sweethome3d.model.*;
+
+/**
+ * Creates synthetic homes for benchmarks.
+ *
+ * The items are distributed evenly between walls, rooms, polylines, labels, dimension lines and furniture and are
+ * placed in a grid of cells, with one item per cell. The walls are connected to chains of four walls, which surround
+ * the cell of the first wall of the chain.
+ *
+ * Copyright (c) 2016 by Tobias Liefke
+ *
+ * @author Tobias Liefke
+ */
+public final class HomeGenerator {
+
+  /** The size of one cell of the grid in cm. */
+  private static final float CELL_SIZE = 500;
+
+  private static final CatalogPieceOfFurniture PIECE = new CatalogPieceOfFurniture("Box", null, null, 80, 60, 90,
+      true, false);
+
+  private HomeGenerator() {
+    // Only static methods
+  }
+
+  /**
+   * Creates a new home with the given count of items, all of them selected.
+   *
+   * @param itemCount the count of items
+   * @return the new home
+   */
+  public static Home createHome(int itemCount) {
+    Home home = new Home();
+    List<Selectable> items = new ArrayList<Selectable>(itemCount);
+    int columns = (int) Math.ceil(Math.sqrt(itemCount));
+    Wall previousWall = null;
+    for (int i = 0; i < itemCount; i++) {
+      float x = i % columns * CELL_SIZE;
+      float y = i / columns * CELL_SIZE;
+      switch (i % 6) {
+        case 0:
+          int side = i / 6 % 4;
+          int chainStart = i - side * 6;
+          previousWall = addWall(home, chainStart % columns * CELL_SIZE, chainStart / columns * CELL_SIZE,
+            previousWall, side);
+          items.add(previousWall);
+          break;
+        case 1:
+          Room room = new Room(createRectangle(x, y, CELL_SIZE - 20, CELL_SIZE - 20));
+          room.setName("Room " + i);
+          home.addRoom(room);
+          items.add(room);
+          break;
+        case 2:
+          Polyline polyline = new Polyline(new float[][] { { x, y }, { x + 100, y + 50 }, { x + 200, y },
+              { x + 300, y + 50 } });
+          home.addPolyline(polyline);
+          items.add(polyline);
+          break;
+        case 3:
+          Label label = new Label("Label " + i, x + CELL_SIZE / 2, y + CELL_SIZE / 2);
+          home.addLabel(label);
+          items.add(label);
+          break;
+        case 4:
+          DimensionLine dimensionLine = new DimensionLine(x, y, x + CELL_SIZE, y, 20);
+          home.addDimensionLine(dimensionLine);
+          items.add(dimensionLine);
+          break;
+        default:
+          HomePieceOfFurniture piece = new HomePieceOfFurniture(PIECE);
+          piece.setX(x + CELL_SIZE / 2);
+          piece.setY(y + CELL_SIZE / 2);
+          piece.setAngle((float) Math.toRadians(i % 360));
+          home.addPieceOfFurniture(piece);
+          items.add(piece);
+          break;
+      }
+    }
+    home.setSelectedItems(items);
+    return home;
+  }
+
+  /**
+   * Adds the next wall of a chain of four walls around a cell.
+   *
+   * @param home the home
+   * @param x the left coordinate of the cell
+   * @param y the top coordinate of the cell
+   * @param previousWall the previous wall of the chain
+   * @param side the side of the cell for the new wall, starting with 0 for a new chain
+   * @return the new wall
+   */
+  private static Wall addWall(Home home, float x, float y, Wall previousWall, int side) {
+    float[][] corners = createRectangle(x, y, CELL_SIZE, CELL_SIZE);
+    float[] start = corners[side];
+    float[] end = corners[(side + 1) % 4];
+    Wall wall = new Wall(start[0], start[1], end[0], end[1], 10, 250);
+    if (side > 0) {
+      // Continue the chain of walls
+      wall.setWallAtStart(previousWall);
+      previousWall.setWallAtEnd(wall);
+    }
+    home.addWall(wall);
+    return wall;
+  }
+
+  /**
+   * Creates the corners of a rectangle in clockwise order.
+   */
+  private static float[][] createRectangle(float x, float y, float width, float height) {
+    return new float[][] { { x, y }, { x + width, y }, { x + width, y + height }, { x, y + height } };
+  }
+
+}
@@ -12,6 +12,11 @@ import com.eteks.sweethome3d.plugin.PluginAction;
  *   <li>Edit room points</li>
  *   <li>Create walls around room</li>
  *   <li>Join walls</li>
+ *   <li>Auto-connect walls</li>
+ *   <li>Split walls at intersections</li>
+ *   <li>Merge collinear walls</li>
+ *   <li>Detect rooms</li>
+ *   <li>Check rooms for self-intersections</li>
  *   <li>Elevate furniture</li>
  * </ul>
  *
@@ -21,13 +26,35 @@ import com.eteks.sweethome3d.plugin.PluginAction;
  */
 public class AdvancedEditingPlugin extends Plugin {
 
+  private SelectionAnalyzer selectionAnalyzer;
+
   /**
    * @see Plugin#getActions()
    */
   @Override
   public PluginAction[] getActions() {
-    return new PluginAction[] { new RotateAction(this), new MoveAction(this), new FlipAction(this),
-        new ResizeAction(this), new EditPointsAction(this), new ConnectWallsAction(this), new ElevateAction(this) };
+    if (selectionAnalyzer == null) {
+      selectionAnalyzer = new SelectionAnalyzer(getHome());
+    }
+    return new PluginAction[] { new RotateAction(this, selectionAnalyzer), new MoveAction(this, selectionAnalyzer),
+        new FlipAction(this, selectionAnalyzer), new ResizeAction(this, selectionAnalyzer), new EditPointsAction(this),
+        new ConnectWallsAction(this, selectionAnalyzer), new AutoConnectWallsAction(this, selectionAnalyzer),
+        new SplitWallsAction(this, selectionAnalyzer), new MergeWallsAction(this, selectionAnalyzer),
+        new DetectRoomsAction(this, selectionAnalyzer), new CheckRoomsAction(this, selectionAnalyzer),
+        new ElevateAction(this, selectionAnalyzer) };
+  }
+
+  /**
+   * Unregisters the selection listener from the home.
+   * 
+   * @see Plugin#destroy()
+   */
+  @Override
+  public void destroy() {
+    if (selectionAnalyzer != null) {
+      selectionAnalyzer.dispose();
+      selectionAnalyzer = null;
+    }
   }
 
 }
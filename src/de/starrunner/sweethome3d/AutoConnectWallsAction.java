@@ -0,0 +1,50 @@
+package de.starrunner.sweethome3d;
+
+import com.eteks.sweethome3d.plugin.Plugin;
+import com.eteks.sweethome3d.plugin.PluginAction;
+
+/**
+ * Connects the free ends of the selected walls, which are close to each other, independent of the selection order.
+ *
+ * Copyright (c) 2016 by Tobias Liefke
+ *
+ * @author Tobias Liefke
+ */
+public class AutoConnectWallsAction extends PluginAction implements SelectionAnalyzer.Listener {
+  private final Plugin plugin;
+
+  /**
+   * Creates a new instance of AutoConnectWallsAction.
+   * 
+   * @param plugin the parent plugin
+   * @param selectionAnalyzer the analyzer of the selection of the home
+   */
+  public AutoConnectWallsAction(Plugin plugin, SelectionAnalyzer selectionAnalyzer) {
+    super("de.starrunner.sweethome3d.package", "AutoConnectWallsAction", AutoConnectWallsAction.class
+        .getClassLoader(), false);
+    this.plugin = plugin;
+    selectionAnalyzer.addListener(this);
+  }
+
+  /**
+   * Enables this action only if at least two walls are selected.
+   * 
+   * @see SelectionAnalyzer.Listener#selectionChanged(SelectionSummary)
+   */
+  @Override
+  public void selectionChanged(SelectionSummary summary) {
+    setEnabled(summary.getWalls() >= 2);
+  }
+
+  /**
+   * Shows the dialog.
+   * 
+   * @see PluginAction#execute()
+   */
+  @Override
+  public void execute() {
+    new AutoConnectWallsView(plugin.getHome(), plugin.getUserPreferences(), plugin.getUndoableEditSupport())
+        .displayView(null);
+  }
+
+}
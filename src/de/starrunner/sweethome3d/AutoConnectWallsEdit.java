@@ -0,0 +1,207 @@
+package de.starrunner.sweethome3d;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.eteks.sweethome3d.model.Wall;
+
+import de.starrunner.components.event.AbstractObjectEdit;
+
+/**
+ * Connects the free ends of walls, which are at the same position or close to each other.
+ *
+ * The order of the walls is irrelevant, as all free ends are found with a {@link SpatialHash}. Each free end is
+ * connected to the nearest free end of another wall within the tolerance, both ends are moved to the center between
+ * them.
+ *
+ * Copyright (c) 2016 by Tobias Liefke
+ *
+ * @author Tobias Liefke
+ */
+public class AutoConnectWallsEdit extends AbstractObjectEdit<List<AutoConnectWallsEdit.WallState>> {
+  private static final long serialVersionUID = 2985601627745264123L;
+
+  private float tolerance;
+  private int jointCount;
+
+  /**
+   * Creates a new instance of AutoConnectWallsEdit.
+   *
+   * @param walls the walls to connect
+   */
+  public AutoConnectWallsEdit(List<Wall> walls) {
+    super(new ArrayList<WallState>(walls.size()));
+    // Save the state of the walls
+    for (Wall wall : walls) {
+      target.add(new WallState(wall));
+    }
+  }
+
+  /**
+   * Connects the walls again for the given tolerance.
+   *
+   * @param tolerance the maximum distance of two connected ends in cm
+   * @return the count of connected joints
+   */
+  public int connect(float tolerance) {
+    undoAction();
+    this.tolerance = tolerance;
+    doAction();
+    return jointCount;
+  }
+
+  /**
+   * The count of joints, which were connected during the last connect.
+   *
+   * @return the count of connected joints
+   */
+  public int getJointCount() {
+    return jointCount;
+  }
+
+  @Override
+  public void doAction() {
+    // Find all free ends
+    List<WallEnd> ends = new ArrayList<WallEnd>();
+    for (WallState state : target) {
+      if (state.wall.getWallAtStart() == null) {
+        ends.add(new WallEnd(state.wall, true));
+      }
+      if (state.wall.getWallAtEnd() == null) {
+        ends.add(new WallEnd(state.wall, false));
+      }
+    }
+    SpatialHash<WallEnd> index = new SpatialHash<WallEnd>(tolerance, ends.size());
+    for (WallEnd end : ends) {
+      index.add(end.x, end.y, end);
+    }
+
+    // And connect each with the nearest free end of another wall
+    jointCount = 0;
+    for (WallEnd end : ends) {
+      if (!end.connected) {
+        WallEnd other = index.findNearest(end.x, end.y, tolerance, end);
+        if (other != null) {
+          float x = (end.x + other.x) / 2;
+          float y = (end.y + other.y) / 2;
+          end.connect(x, y, other.wall);
+          other.connect(x, y, end.wall);
+          jointCount++;
+        }
+      }
+    }
+  }
+
+  @Override
+  public void undoAction() {
+    for (WallState state : target) {
+      // Reset the saved state
+      state.undo();
+    }
+    jointCount = 0;
+  }
+
+  @Override
+  public String getPresentationName() {
+    return Msg.msg("AutoConnectWallsView.dialogTitle");
+  }
+
+  /**
+   * A free end of a wall.
+   *
+   * Accepts only the free ends of other walls as partner.
+   */
+  private static final class WallEnd implements SpatialHash.Filter<WallEnd> {
+    private final Wall wall;
+    private final boolean start;
+    private final float x;
+    private final float y;
+    private boolean connected;
+
+    /**
+     * Creates a new instance of WallEnd.
+     *
+     * @param wall the associated wall
+     * @param start {@code true} for the start point of the wall, {@code false} for the end point
+     */
+    public WallEnd(Wall wall, boolean start) {
+      this.wall = wall;
+      this.start = start;
+      this.x = start ? wall.getXStart() : wall.getXEnd();
+      this.y = start ? wall.getYStart() : wall.getYEnd();
+    }
+
+    @Override
+    public boolean accept(WallEnd other) {
+      return !other.connected && other.wall != wall;
+    }
+
+    /**
+     * Moves this end to the given point and connects it to the given wall.
+     *
+     * @param newX the x coordinate of the joint
+     * @param newY the y coordinate of the joint
+     * @param otherWall the connected wall
+     */
+    public void connect(float newX, float newY, Wall otherWall) {
+      connected = true;
+      if (start) {
+        if (newX != x || newY != y) {
+          wall.setXStart(newX);
+          wall.setYStart(newY);
+        }
+        wall.setWallAtStart(otherWall);
+      } else {
+        if (newX != x || newY != y) {
+          wall.setXEnd(newX);
+          wall.setYEnd(newY);
+        }
+        wall.setWallAtEnd(otherWall);
+      }
+    }
+  }
+
+  /**
+   * Used to store the state of a wall for undo.
+   */
+  public static final class WallState {
+    private final Wall wall;
+    private final float[] points;
+    private final Wall wallAtStart;
+    private final Wall wallAtEnd;
+
+    /**
+     * Creates a new instance of WallState.
+     *
+     * @param wall the associated wall
+     */
+    public WallState(Wall wall) {
+      this.wall = wall;
+      points = new float[] { wall.getXStart(), wall.getYStart(), wall.getXEnd(), wall.getYEnd() };
+      wallAtStart = wall.getWallAtStart();
+      wallAtEnd = wall.getWallAtEnd();
+    }
+
+    /**
+     * Resets the state of the associated wall.
+     */
+    public void undo() {
+      if (wall.getWallAtStart() != wallAtStart) {
+        wall.setWallAtStart(wallAtStart);
+      }
+      if (wall.getWallAtEnd() != wallAtEnd) {
+        wall.setWallAtEnd(wallAtEnd);
+      }
+      if (wall.getXStart() != points[0] || wall.getYStart() != points[1]) {
+        wall.setXStart(points[0]);
+        wall.setYStart(points[1]);
+      }
+      if (wall.getXEnd() != points[2] || wall.getYEnd() != points[3]) {
+        wall.setXEnd(points[2]);
+        wall.setYEnd(points[3]);
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,89 @@
+package de.starrunner.sweethome3d;
+
+import java.awt.GridBagConstraints;
+import java.awt.Insets;
+
+import javax.swing.JLabel;
+import javax.swing.JSpinner;
+import javax.swing.undo.UndoableEditSupport;
+
+import com.eteks.sweethome3d.model.Home;
+import com.eteks.sweethome3d.model.UserPreferences;
+import com.eteks.sweethome3d.swing.NullableSpinner;
+import com.eteks.sweethome3d.swing.NullableSpinner.NullableSpinnerLengthModel;
+import com.eteks.sweethome3d.viewcontroller.DialogView;
+import com.eteks.sweethome3d.viewcontroller.View;
+
+import de.starrunner.util.strings.Mnemonics;
+
+/**
+ * Lets a user connect the free ends of the selected walls, which are close to each other.
+ *
+ * Copyright (c) 2016 by Tobias Liefke
+ *
+ * @author Tobias Liefke
+ */
+public class AutoConnectWallsView extends ImmediateEditDialogView {
+  private static final long serialVersionUID = -2384615034283316254L;
+
+  /** The default tolerance in cm. */
+  private static final float DEFAULT_TOLERANCE = 5;
+
+  private AutoConnectWallsEdit currentEdit;
+
+  private NullableSpinnerLengthModel toleranceModel;
+  private JLabel resultLabel;
+
+  /**
+   * Creates a new instance of AutoConnectWallsView.
+   *
+   * @param home the application
+   * @param preferences the current configuration
+   * @param undoSupport used for undo support of the current action
+   */
+  public AutoConnectWallsView(Home home, UserPreferences preferences, UndoableEditSupport undoSupport) {
+    super(Msg.msg("AutoConnectWallsView.dialogTitle"), home, preferences, undoSupport);
+    initComponents();
+  }
+
+  /**
+   * Create and add the components.
+   */
+  private void initComponents() {
+    JLabel toleranceLabel = new JLabel(Msg.msg("AutoConnectWallsView.toleranceLabel", preferences.getLengthUnit()
+        .getName()));
+    add(toleranceLabel, new GridBagConstraints(0, 0, 1, 1, 1.0, 0.0, GridBagConstraints.LINE_END,
+        GridBagConstraints.NONE, new Insets(0, 0, 0, 5), 0, 0));
+    toleranceModel = new NullableSpinnerLengthModel(preferences, 0f, 1000f);
+    toleranceModel.setLength(DEFAULT_TOLERANCE);
+    toleranceModel.addChangeListener(createLazyChangeListener());
+    final JSpinner toleranceSpinner = new NullableSpinner(toleranceModel);
+    add(toleranceSpinner, new GridBagConstraints(1, 0, 1, 1, 1.0, 0.0, GridBagConstraints.LINE_START,
+        GridBagConstraints.NONE, new Insets(0, 0, 0, 0), 0, 0));
+    Mnemonics.configure(toleranceLabel, toleranceSpinner);
+
+    resultLabel = new JLabel(" ");
+    add(resultLabel, new GridBagConstraints(0, 1, 2, 1, 1.0, 0.0, GridBagConstraints.LINE_START,
+        GridBagConstraints.NONE, new Insets(5, 0, 0, 0), 0, 0));
+  }
+
+  /**
+   * @see DialogView#displayView(View)
+   */
+  @Override
+  public void displayView(View parentView) {
+    currentEdit = new AutoConnectWallsEdit(Home.getWallsSubList(home.getSelectedItems()));
+    apply();
+    showDialog(currentEdit);
+  }
+
+  @Override
+  protected void apply() {
+    Float tolerance = toleranceModel.getLength();
+    if (tolerance != null) {
+      int jointCount = currentEdit.connect(tolerance);
+      resultLabel.setText(Msg.msg("AutoConnectWallsView.resultLabel", jointCount));
+    }
+  }
+
+}
@@ -0,0 +1,83 @@
+package de.starrunner.sweethome3d;
+
+import java.awt.KeyboardFocusManager;
+import java.awt.Window;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.JOptionPane;
+
+import com.eteks.sweethome3d.model.Home;
+import com.eteks.sweethome3d.model.Level;
+import com.eteks.sweethome3d.model.Room;
+import com.eteks.sweethome3d.plugin.Plugin;
+import com.eteks.sweethome3d.plugin.PluginAction;
+
+/**
+ * Finds the rooms whose sides cross or touch each other, within the selected rooms or within all rooms of the current
+ * level.
+ *
+ * The found rooms are selected, so they can be fixed one after the other with {@link EditPointsAction}.
+ *
+ * Copyright (c) 2016 by Tobias Liefke
+ *
+ * @author Tobias Liefke
+ */
+public class CheckRoomsAction extends PluginAction implements SelectionAnalyzer.Listener {
+  private final Plugin plugin;
+
+  /**
+   * Creates a new instance of CheckRoomsAction.
+   *
+   * @param plugin the parent plugin
+   * @param selectionAnalyzer the analyzer of the selection of the home
+   */
+  public CheckRoomsAction(Plugin plugin, SelectionAnalyzer selectionAnalyzer) {
+    super("de.starrunner.sweethome3d.package", "CheckRoomsAction", CheckRoomsAction.class.getClassLoader(), false);
+    this.plugin = plugin;
+    selectionAnalyzer.addListener(this);
+  }
+
+  /**
+   * Enables this action if rooms are selected or nothing is selected at all.
+   *
+   * @see SelectionAnalyzer.Listener#selectionChanged(SelectionSummary)
+   */
+  @Override
+  public void selectionChanged(SelectionSummary summary) {
+    setEnabled(summary.isEmpty() || summary.getRooms() > 0);
+  }
+
+  /**
+   * @see PluginAction#execute()
+   */
+  @Override
+  public void execute() {
+    Home home = plugin.getHome();
+    List<Room> rooms = Home.getRoomsSubList(home.getSelectedItems());
+    if (rooms.isEmpty()) {
+      Level level = home.getSelectedLevel();
+      for (Room room : home.getRooms()) {
+        if (level == null || room.isAtLevel(level)) {
+          rooms.add(room);
+        }
+      }
+    }
+
+    List<Room> invalidRooms = new ArrayList<Room>();
+    for (Room room : rooms) {
+      if (!SelfIntersectionDetector.findIntersections(room.getPoints(), true).isEmpty()) {
+        invalidRooms.add(room);
+      }
+    }
+    if (!invalidRooms.isEmpty()) {
+      home.setSelectedItems(invalidRooms);
+    }
+
+    Window parentWindow = KeyboardFocusManager.getCurrentKeyboardFocusManager().getActiveWindow();
+    JOptionPane.showMessageDialog(parentWindow, Msg.msg("CheckRoomsAction.resultMessage", invalidRooms.size(),
+      rooms.size()), Msg.msg("CheckRoomsAction.NAME"), invalidRooms.isEmpty() ? JOptionPane.INFORMATION_MESSAGE
+        : JOptionPane.WARNING_MESSAGE);
+  }
+
+}
@@ -0,0 +1,93 @@
+package de.starrunner.sweethome3d;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.eteks.sweethome3d.model.Wall;
+
+import de.starrunner.components.event.AbstractObjectEdit;
+
+/**
+ * Connects the end point of each wall with the start point of the next wall in a list.
+ *
+ * Copyright (c) 2010 by Tobias Liefke
+ *
+ * @author Tobias Liefke
+ */
+public class ConnectWallsEdit extends AbstractObjectEdit<List<ConnectWallsEdit.WallState>> {
+  private static final long serialVersionUID = -4599720120419014157L;
+
+  /**
+   * Creates a new instance of ConnectWallsEdit.
+   *
+   * @param walls the walls to connect, in the order of connection
+   */
+  public ConnectWallsEdit(List<Wall> walls) {
+    super(new ArrayList<WallState>(walls.size()));
+    // Save the state of the walls
+    for (Wall wall : walls) {
+      target.add(new WallState(wall));
+    }
+  }
+
+  @Override
+  public void doAction() {
+    int size = target.size() - 1;
+    for (int i = 0; i < size; i++) {
+      // Join every pair of walls
+      WallState first = target.get(i);
+      WallState second = target.get(i + 1);
+      first.wall.setXEnd(second.wall.getXStart());
+      first.wall.setYEnd(second.wall.getYStart());
+      first.wall.setWallAtEnd(second.wall);
+      second.wall.setWallAtStart(first.wall);
+    }
+  }
+
+  @Override
+  public void undoAction() {
+    for (WallState state : target) {
+      // Reset the saved state
+      state.undo();
+    }
+  }
+
+  @Override
+  public String getPresentationName() {
+    return Msg.msg("ConnectWallsAction.NAME");
+  }
+
+  /**
+   * Used to store the state of a wall for undo.
+   */
+  public static final class WallState {
+    private final Wall wall;
+    private float[] ends;
+    private Wall wallAtStart;
+    private Wall wallAtEnd;
+
+    /**
+     * Creates a new instance of WallState.
+     *
+     * @param wall the associated wall
+     */
+    public WallState(Wall wall) {
+      this.wall = wall;
+      ends = new float[] { wall.getXEnd(), wall.getYEnd() };
+      wallAtStart = wall.getWallAtStart();
+      wallAtEnd = wall.getWallAtEnd();
+    }
+
+    /**
+     * Resets the state of the associated wall.
+     */
+    public void undo() {
+      wall.setWallAtStart(wallAtStart);
+      wall.setWallAtEnd(wallAtEnd);
+      wall.setXEnd(ends[0]);
+      wall.setYEnd(ends[1]);
+    }
+
+  }
+
+}
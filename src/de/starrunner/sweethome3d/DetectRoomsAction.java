@@ -0,0 +1,49 @@
+package de.starrunner.sweethome3d;
+
+import com.eteks.sweethome3d.plugin.Plugin;
+import com.eteks.sweethome3d.plugin.PluginAction;
+
+/**
+ * Creates the rooms, which are enclosed by the selected walls or by all walls of the current level.
+ *
+ * Copyright (c) 2016 by Tobias Liefke
+ *
+ * @author Tobias Liefke
+ */
+public class DetectRoomsAction extends PluginAction implements SelectionAnalyzer.Listener {
+  private final Plugin plugin;
+
+  /**
+   * Creates a new instance of DetectRoomsAction.
+   * 
+   * @param plugin the parent plugin
+   * @param selectionAnalyzer the analyzer of the selection of the home
+   */
+  public DetectRoomsAction(Plugin plugin, SelectionAnalyzer selectionAnalyzer) {
+    super("de.starrunner.sweethome3d.package", "DetectRoomsAction", DetectRoomsAction.class.getClassLoader(), false);
+    this.plugin = plugin;
+    selectionAnalyzer.addListener(this);
+  }
+
+  /**
+   * Enables this action if walls are selected or nothing is selected at all.
+   * 
+   * @see SelectionAnalyzer.Listener#selectionChanged(SelectionSummary)
+   */
+  @Override
+  public void selectionChanged(SelectionSummary summary) {
+    setEnabled(summary.isEmpty() || summary.getWalls() > 0);
+  }
+
+  /**
+   * Shows the dialog.
+   * 
+   * @see PluginAction#execute()
+   */
+  @Override
+  public void execute() {
+    new DetectRoomsView(plugin.getHome(), plugin.getUserPreferences(), plugin.getUndoableEditSupport())
+        .displayView(null);
+  }
+
+}
@@ -0,0 +1,167 @@
+package de.starrunner.sweethome3d;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.eteks.sweethome3d.model.Home;
+import com.eteks.sweethome3d.model.Level;
+import com.eteks.sweethome3d.model.Room;
+import com.eteks.sweethome3d.model.Selectable;
+import com.eteks.sweethome3d.model.Wall;
+
+import de.starrunner.components.event.AbstractObjectEdit;
+
+/**
+ * Adds a room for each closed loop of walls.
+ *
+ * The loops are found by a {@link RoomDetector}, which is created only once, so changing the options recreates the
+ * rooms without analyzing the walls again. Loops that match an existing room of the same level are skipped, so
+ * detecting the rooms again only adds the missing rooms.
+ *
+ * Copyright (c) 2016 by Tobias Liefke
+ *
+ * @author Tobias Liefke
+ */
+public class DetectRoomsEdit extends AbstractObjectEdit<List<Room>> {
+  private static final long serialVersionUID = -7013954432872436162L;
+
+  private final Home home;
+  private final RoomDetector detector;
+  private final List<Selectable> selectedItems;
+  private final Level level;
+
+  /** The maximum distance of the points of a loop to the points of an existing room, in cm. */
+  private static final float DUPLICATE_TOLERANCE = 1;
+
+  /**
+   * Creates a new instance of DetectRoomsEdit.
+   *
+   * @param home the home that receives the rooms
+   * @param walls the walls that enclose the rooms
+   */
+  public DetectRoomsEdit(Home home, List<Wall> walls) {
+    super(new ArrayList<Room>());
+    this.home = home;
+    this.detector = new RoomDetector(walls);
+    this.selectedItems = home.getSelectedItems();
+    this.level = home.getSelectedLevel();
+  }
+
+  /**
+   * Replaces the rooms of the last detection with the rooms for the given option.
+   *
+   * @param innerSides {@code true} if the rooms follow the inner sides of the walls, {@code false} for the center
+   *          lines
+   * @return the count of detected rooms
+   */
+  public int detect(boolean innerSides) {
+    undoAction();
+    target.clear();
+    SpatialHash<float[][]> existingRooms = indexExistingRooms();
+    for (final float[][] points : detector.detectRooms(innerSides)) {
+      float[] center = getCenter(points);
+      float[][] existingRoom = existingRooms.findNearest(center[0], center[1], DUPLICATE_TOLERANCE,
+        new SpatialHash.Filter<float[][]>() {
+          @Override
+          public boolean accept(float[][] roomPoints) {
+            return isSameLoop(points, roomPoints);
+          }
+        });
+      if (existingRoom == null) {
+        target.add(new Room(points));
+      }
+    }
+    doAction();
+    return target.size();
+  }
+
+  /**
+   * Indexes the rooms of the level by their center.
+   */
+  private SpatialHash<float[][]> indexExistingRooms() {
+    List<Room> rooms = home.getRooms();
+    SpatialHash<float[][]> index = new SpatialHash<float[][]>(DUPLICATE_TOLERANCE * 10, rooms.size());
+    for (Room room : rooms) {
+      if (level == null || room.isAtLevel(level)) {
+        float[][] points = room.getPoints();
+        float[] center = getCenter(points);
+        index.add(center[0], center[1], points);
+      }
+    }
+    return index;
+  }
+
+  /**
+   * The center of the bounds of the given points.
+   */
+  private static float[] getCenter(float[][] points) {
+    float minX = Float.MAX_VALUE;
+    float minY = Float.MAX_VALUE;
+    float maxX = -Float.MAX_VALUE;
+    float maxY = -Float.MAX_VALUE;
+    for (float[] point : points) {
+      minX = Math.min(minX, point[0]);
+      minY = Math.min(minY, point[1]);
+      maxX = Math.max(maxX, point[0]);
+      maxY = Math.max(maxY, point[1]);
+    }
+    return new float[] { (minX + maxX) / 2, (minY + maxY) / 2 };
+  }
+
+  /**
+   * Checks that both loops contain the same points in the same cyclic order, in any direction.
+   */
+  private static boolean isSameLoop(float[][] loop, float[][] roomPoints) {
+    int count = loop.length;
+    if (roomPoints.length != count) {
+      return false;
+    }
+    for (int start = 0; start < count; start++) {
+      if (isSamePoint(loop[0], roomPoints[start])) {
+        boolean forward = true;
+        boolean backward = true;
+        for (int i = 1; i < count && (forward || backward); i++) {
+          forward &= isSamePoint(loop[i], roomPoints[(start + i) % count]);
+          backward &= isSamePoint(loop[i], roomPoints[(start - i + count) % count]);
+        }
+        if (forward || backward) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static boolean isSamePoint(float[] point1, float[] point2) {
+    return Math.abs(point1[0] - point2[0]) <= DUPLICATE_TOLERANCE
+        && Math.abs(point1[1] - point2[1]) <= DUPLICATE_TOLERANCE;
+  }
+
+  /**
+   * Adds the rooms to the level of the detection, which is not necessarily the selected level during a redo.
+   */
+  @Override
+  public void doAction() {
+    for (Room room : target) {
+      home.addRoom(room);
+      room.setLevel(level);
+    }
+    if (!target.isEmpty()) {
+      home.setSelectedItems(target);
+    }
+  }
+
+  @Override
+  public void undoAction() {
+    home.setSelectedItems(selectedItems);
+    for (Room room : target) {
+      home.deleteRoom(room);
+    }
+  }
+
+  @Override
+  public String getPresentationName() {
+    return Msg.msg("DetectRoomsView.dialogTitle");
+  }
+
+}
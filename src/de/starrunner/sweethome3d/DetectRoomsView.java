@@ -0,0 +1,104 @@
+package de.starrunner.sweethome3d;
+
+import java.awt.GridBagConstraints;
+import java.awt.Insets;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.ButtonGroup;
+import javax.swing.JLabel;
+import javax.swing.JRadioButton;
+import javax.swing.undo.UndoableEditSupport;
+
+import com.eteks.sweethome3d.model.Home;
+import com.eteks.sweethome3d.model.Level;
+import com.eteks.sweethome3d.model.UserPreferences;
+import com.eteks.sweethome3d.model.Wall;
+import com.eteks.sweethome3d.viewcontroller.DialogView;
+import com.eteks.sweethome3d.viewcontroller.View;
+
+import de.starrunner.util.strings.Mnemonics;
+
+/**
+ * Lets a user create the rooms, which are enclosed by the selected walls or by all walls of the current level.
+ *
+ * Copyright (c) 2016 by Tobias Liefke
+ *
+ * @author Tobias Liefke
+ */
+public class DetectRoomsView extends ImmediateEditDialogView {
+  private static final long serialVersionUID = 4620391735517209841L;
+
+  private DetectRoomsEdit currentEdit;
+
+  private JRadioButton innerSidesButton;
+  private JLabel resultLabel;
+
+  /**
+   * Creates a new instance of DetectRoomsView.
+   *
+   * @param home the application
+   * @param preferences the current configuration
+   * @param undoSupport used for undo support of the current action
+   */
+  public DetectRoomsView(Home home, UserPreferences preferences, UndoableEditSupport undoSupport) {
+    super(Msg.msg("DetectRoomsView.dialogTitle"), home, preferences, undoSupport);
+    initComponents();
+  }
+
+  /**
+   * Create and add the components.
+   */
+  private void initComponents() {
+    ButtonGroup sidesGroup = new ButtonGroup();
+    JRadioButton centerLinesButton = Mnemonics.configure(new JRadioButton(Msg.msg("DetectRoomsView.centerLinesLabel")));
+    centerLinesButton.addActionListener(createLazyActionListener());
+    sidesGroup.add(centerLinesButton);
+    add(centerLinesButton, new GridBagConstraints(0, 0, 1, 1, 1.0, 0.0, GridBagConstraints.LINE_START,
+        GridBagConstraints.NONE, new Insets(0, 0, 0, 0), 0, 0));
+
+    innerSidesButton = Mnemonics.configure(new JRadioButton(Msg.msg("DetectRoomsView.innerSidesLabel")));
+    innerSidesButton.addActionListener(createLazyActionListener());
+    innerSidesButton.setSelected(true);
+    sidesGroup.add(innerSidesButton);
+    add(innerSidesButton, new GridBagConstraints(0, 1, 1, 1, 1.0, 0.0, GridBagConstraints.LINE_START,
+        GridBagConstraints.NONE, new Insets(0, 0, 0, 0), 0, 0));
+
+    resultLabel = new JLabel(" ");
+    add(resultLabel, new GridBagConstraints(0, 2, 1, 1, 1.0, 0.0, GridBagConstraints.LINE_START,
+        GridBagConstraints.NONE, new Insets(5, 0, 0, 0), 0, 0));
+  }
+
+  /**
+   * @see DialogView#displayView(View)
+   */
+  @Override
+  public void displayView(View parentView) {
+    currentEdit = new DetectRoomsEdit(home, getWalls());
+    apply();
+    showDialog(currentEdit);
+  }
+
+  /**
+   * Finds the walls to analyze: the selected walls or all walls of the current level, if none is selected.
+   */
+  private List<Wall> getWalls() {
+    List<Wall> walls = Home.getWallsSubList(home.getSelectedItems());
+    if (walls.isEmpty()) {
+      Level level = home.getSelectedLevel();
+      for (Wall wall : home.getWalls()) {
+        if (level == null || wall.isAtLevel(level)) {
+          walls.add(wall);
+        }
+      }
+    }
+    return walls;
+  }
+
+  @Override
+  protected void apply() {
+    int roomCount = currentEdit.detect(innerSidesButton.isSelected());
+    resultLabel.setText(Msg.msg("DetectRoomsView.resultLabel", roomCount));
+  }
+
+}
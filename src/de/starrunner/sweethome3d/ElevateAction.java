@@ -1,8 +1,5 @@
 package de.starrunner.sweethome3d;
 
-import java.util.Collection;
-
-import com.eteks.sweethome3d.model.*;
 import com.eteks.sweethome3d.plugin.Plugin;
 import com.eteks.sweethome3d.plugin.PluginAction;
 
@@ -13,38 +10,29 @@ import com.eteks.sweethome3d.plugin.PluginAction;
  *
  * @author Tobias Liefke
  */
-public class ElevateAction extends PluginAction {
+public class ElevateAction extends PluginAction implements SelectionAnalyzer.Listener {
   private final Plugin plugin;
 
-  /**
-   * Checks if the given list contains any furniture object.
-   */
-  private static final boolean containsFurniture(Collection<?> objects) {
-    for (Object o : objects) {
-      if (o instanceof PieceOfFurniture) {
-        return true;
-      }
-    }
-    return false;
-  }
-
   /**
    * Creates a new instance of ElevateAction.
    * 
    * @param plugin the parent plugin
+   * @param selectionAnalyzer the analyzer of the selection of the home
    */
-  public ElevateAction(Plugin plugin) {
-    super("de.starrunner.sweethome3d.package", "ElevateAction", ElevateAction.class.getClassLoader(),
-        containsFurniture(plugin.getHome().getSelectedItems()));
+  public ElevateAction(Plugin plugin, SelectionAnalyzer selectionAnalyzer) {
+    super("de.starrunner.sweethome3d.package", "ElevateAction", ElevateAction.class.getClassLoader(), false);
     this.plugin = plugin;
+    selectionAnalyzer.addListener(this);
+  }
 
-    // Enable only if a furniture is selected
-    plugin.getHome().addSelectionListener(new SelectionListener() {
-      @Override
-      public void selectionChanged(SelectionEvent selectionEvent) {
-        setEnabled(containsFurniture(selectionEvent.getSelectedItems()));
-      }
-    });
+  /**
+   * Enables this action only if a furniture is selected.
+   * 
+   * @see SelectionAnalyzer.Listener#selectionChanged(SelectionSummary)
+   */
+  @Override
+  public void selectionChanged(SelectionSummary summary) {
+    setEnabled(summary.getFurniture() > 0);
   }
 
   /**
@@ -1,7 +1,5 @@
 package de.starrunner.sweethome3d;
 
-import com.eteks.sweethome3d.model.SelectionEvent;
-import com.eteks.sweethome3d.model.SelectionListener;
 import com.eteks.sweethome3d.plugin.Plugin;
 import com.eteks.sweethome3d.plugin.PluginAction;
 
@@ -13,26 +11,29 @@ import com.eteks.sweethome3d.plugin.PluginAction;
  *
  * @author Igor A. Perminov
  */
-public class FlipAction extends PluginAction {
+public class FlipAction extends PluginAction implements SelectionAnalyzer.Listener {
   private final Plugin plugin;
 
   /**
    * Creates a new instance of FlipAction.
    * 
    * @param plugin the parent plugin
+   * @param selectionAnalyzer the analyzer of the selection of the home
    */
-  public FlipAction(Plugin plugin) {
-    super("de.starrunner.sweethome3d.package", "FlipAction", FlipAction.class.getClassLoader(),
-        !plugin.getHome().getSelectedItems().isEmpty());
+  public FlipAction(Plugin plugin, SelectionAnalyzer selectionAnalyzer) {
+    super("de.starrunner.sweethome3d.package", "FlipAction", FlipAction.class.getClassLoader(), false);
     this.plugin = plugin;
+    selectionAnalyzer.addListener(this);
+  }
 
-    // Enable only if a selection is available
-    plugin.getHome().addSelectionListener(new SelectionListener() {
-      @Override
-      public void selectionChanged(SelectionEvent selectionEvent) {
-        setEnabled(!selectionEvent.getSelectedItems().isEmpty());
-      }
-    });
+  /**
+   * Enables this action only if a selection is available.
+   * 
+   * @see SelectionAnalyzer.Listener#selectionChanged(SelectionSummary)
+   */
+  @Override
+  public void selectionChanged(SelectionSummary summary) {
+    setEnabled(!summary.isEmpty());
   }
 
   /**
@@ -26,10 +26,9 @@ import de.starrunner.util.strings.Mnemonics;
  * @author Igor A. Perminov
  * @author Tobias Liefke
  */
-public class FlipView extends ImmediateEditDialogView {
+public class FlipView extends TransformView {
   private static final long serialVersionUID = 7891739638750256221L;
 
-  private TransformEdit currentEdit;
   private Rectangle2D.Float bounds;
 
   private JCheckBox flipHorizontallyButton;
@@ -83,6 +82,8 @@ public class FlipView extends ImmediateEditDialogView {
     adjustTextButton.addActionListener(createLazyActionListener());
     add(adjustTextButton, new GridBagConstraints(0, 3, 2, 1, 0, 0, GridBagConstraints.LINE_START,
         GridBagConstraints.NONE, new Insets(0, 20, 0, 0), 0, 0));
+
+    addPreviewComponents(4);
   }
 
   /**
@@ -90,23 +91,28 @@ public class FlipView extends ImmediateEditDialogView {
    */
   @Override
   public void displayView(View parentView) {
-    currentEdit = new TransformEdit(getTitle(), home);
+    TransformEdit currentEdit = startEdit();
     bounds = currentEdit.getBounds();
 
     showDialog(currentEdit);
   }
 
   @Override
-  protected void apply() {
-    boolean isFlipHorizontally = flipHorizontallyButton.isSelected();
-    boolean isFlipVertically = flipVerticallyButton.isSelected();
-    boolean isRotateText = rotateTextButton.isSelected();
-    boolean isAdjustText = isRotateText && adjustTextButton.isSelected();
-    float scaleX = isFlipHorizontally ? -1 : 1;
-    float scaleY = isFlipVertically ? -1 : 1;
-    currentEdit.transform(
-      new AffineTransform(scaleX, 0, 0, scaleY, bounds.getCenterX() * (1 - scaleX), bounds.getCenterY() * (1 - scaleY)),
-      isRotateText, isAdjustText);
+  protected AffineTransform createTransformation() {
+    float scaleX = flipHorizontallyButton.isSelected() ? -1 : 1;
+    float scaleY = flipVerticallyButton.isSelected() ? -1 : 1;
+    return new AffineTransform(scaleX, 0, 0, scaleY, bounds.getCenterX() * (1 - scaleX), bounds.getCenterY()
+        * (1 - scaleY));
+  }
+
+  @Override
+  protected boolean isRotateText() {
+    return rotateTextButton.isSelected();
+  }
+
+  @Override
+  protected boolean isAdjustText() {
+    return rotateTextButton.isSelected() && adjustTextButton.isSelected();
   }
 
 }
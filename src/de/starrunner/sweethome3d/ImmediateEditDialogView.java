@@ -73,18 +73,17 @@ public abstract class ImmediateEditDialogView extends JPanel implements DialogVi
       this, getTitle(), getInitialFocusedComponent()) == JOptionPane.OK_OPTION) {
 
       // Apply the last change, if nessecary
-      if (timer.isRunning()) {
-        timer.stop();
-        apply();
-      }
+      commit();
 
-      // Post the edit
-      if (undoSupport != null) {
+      // Post the edit, or revert any side effect of an edit that changed nothing
+      if (!isEditPosted()) {
+        edit.undo();
+      } else if (undoSupport != null) {
         undoSupport.postEdit(edit);
       }
     } else {
       // Revert any changes
-      timer.stop();
+      cancel();
       edit.undo();
     }
   }
@@ -132,6 +131,36 @@ public abstract class ImmediateEditDialogView extends JPanel implements DialogVi
    */
   protected abstract void apply();
 
+  /**
+   * Called when the user confirmed the dialog, before the edit is posted.
+   * 
+   * Applies any pending change to the current home.
+   */
+  protected void commit() {
+    if (timer.isRunning()) {
+      timer.stop();
+      apply();
+    }
+  }
+
+  /**
+   * Indicates that the edit is posted after the dialog was confirmed and the pending change was applied.
+   *
+   * @return {@code true} if the edit is posted, {@code false} if it did not change the home
+   */
+  protected boolean isEditPosted() {
+    return true;
+  }
+
+  /**
+   * Called when the user canceled the dialog, before the edit is reverted.
+   * 
+   * Discards any pending change.
+   */
+  protected void cancel() {
+    timer.stop();
+  }
+
   /**
    * Starts the timer that calls {@link #apply()} eventually after a short period.
    */
@@ -0,0 +1,54 @@
+package de.starrunner.sweethome3d;
+
+import com.eteks.sweethome3d.model.Home;
+import com.eteks.sweethome3d.plugin.Plugin;
+import com.eteks.sweethome3d.plugin.PluginAction;
+
+/**
+ * Merges the selected walls, which continue each other in the same direction, into single walls.
+ *
+ * Copyright (c) 2016 by Tobias Liefke
+ *
+ * @author Tobias Liefke
+ */
+public class MergeWallsAction extends PluginAction implements SelectionAnalyzer.Listener {
+  private final Plugin plugin;
+
+  /**
+   * Creates a new instance of MergeWallsAction.
+   * 
+   * @param plugin the parent plugin
+   * @param selectionAnalyzer the analyzer of the selection of the home
+   */
+  public MergeWallsAction(Plugin plugin, SelectionAnalyzer selectionAnalyzer) {
+    super("de.starrunner.sweethome3d.package", "MergeWallsAction", MergeWallsAction.class.getClassLoader(), false);
+    this.plugin = plugin;
+    selectionAnalyzer.addListener(this);
+  }
+
+  /**
+   * Enables this action only if at least two walls are selected.
+   * 
+   * @see SelectionAnalyzer.Listener#selectionChanged(SelectionSummary)
+   */
+  @Override
+  public void selectionChanged(SelectionSummary summary) {
+    setEnabled(summary.getWalls() >= 2);
+  }
+
+  /**
+   * @see PluginAction#execute()
+   */
+  @Override
+  public void execute() {
+    Home home = plugin.getHome();
+    MergeWallsEdit edit = new MergeWallsEdit(home, Home.getWallsSubList(home.getSelectedItems()));
+    if (edit.getMergedWallCount() > 0) {
+      edit.doAction();
+      if (plugin.getUndoableEditSupport() != null) {
+        plugin.getUndoableEditSupport().postEdit(edit);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,436 @@
+package de.starrunner.sweethome3d;
+
+import java.util.*;
+
+import com.eteks.sweethome3d.model.Home;
+import com.eteks.sweethome3d.model.Level;
+import com.eteks.sweethome3d.model.Selectable;
+import com.eteks.sweethome3d.model.Wall;
+
+import de.starrunner.components.event.AbstractObjectEdit;
+
+/**
+ * Merges chains of collinear walls with the same properties into single walls.
+ *
+ * The walls are grouped by their direction and by the offset of their line from the origin. Only the walls in the
+ * same group are sorted along their common line, and consecutive walls whose ends meet are merged. So the cost is
+ * O(n log n) for n walls, independent of the count of walls in the home.
+ *
+ * Two walls are merged only if they have the same direction, thickness, height, colors and textures, and if the
+ * common point is either joined between them or free at both walls. Round and sloping walls are not merged. Other
+ * walls that are joined to a merged wall only on their side (like walls that end in the middle of the chain) are
+ * joined to the new wall.
+ *
+ * Copyright (c) 2016 by Tobias Liefke
+ *
+ * @author Tobias Liefke
+ */
+public class MergeWallsEdit extends AbstractObjectEdit<List<MergeWallsEdit.MergedWall>> {
+  private static final long serialVersionUID = 6384056931647125893L;
+
+  /** The maximum difference of the direction of two merged walls, in radians. */
+  private static final double ANGLE_TOLERANCE = 0.001;
+
+  /** The maximum distance of the end points of a merged wall to the line of the new wall, in cm. */
+  private static final double OFFSET_TOLERANCE = 0.5;
+
+  /**
+   * A candidate for a merge, with its position on the line.
+   */
+  private static final class Line {
+    private final Wall wall;
+    private final double angle;
+    private final double dx;
+    private final double dy;
+    private final double offset;
+    private double position;
+
+    Line(Wall wall) {
+      this.wall = wall;
+      this.angle = Math.atan2(wall.getYEnd() - wall.getYStart(), wall.getXEnd() - wall.getXStart());
+      this.dx = Math.cos(angle);
+      this.dy = Math.sin(angle);
+      this.offset = dx * wall.getYStart() - dy * wall.getXStart();
+    }
+  }
+
+  private static final Comparator<Line> ANGLE_ORDER = new Comparator<Line>() {
+    @Override
+    public int compare(Line line1, Line line2) {
+      return Double.compare(line1.angle, line2.angle);
+    }
+  };
+
+  private static final Comparator<Line> OFFSET_ORDER = new Comparator<Line>() {
+    @Override
+    public int compare(Line line1, Line line2) {
+      return Double.compare(line1.offset, line2.offset);
+    }
+  };
+
+  private static final Comparator<Line> POSITION_ORDER = new Comparator<Line>() {
+    @Override
+    public int compare(Line line1, Line line2) {
+      return Double.compare(line1.position, line2.position);
+    }
+  };
+
+  private final Home home;
+  private final List<Selectable> oldSelection;
+  private final List<Selectable> newSelection;
+
+  /**
+   * Creates a new instance of MergeWallsEdit and finds the walls to merge.
+   *
+   * @param home the home that contains the walls
+   * @param walls the walls to merge
+   */
+  public MergeWallsEdit(Home home, List<Wall> walls) {
+    super(new ArrayList<MergedWall>());
+    this.home = home;
+
+    List<Line> lines = new ArrayList<Line>(walls.size());
+    for (Wall wall : walls) {
+      if (wall.getArcExtent() == null && wall.getLength() > OFFSET_TOLERANCE) {
+        lines.add(new Line(wall));
+      }
+    }
+
+    // Group by direction, then by offset and merge along each line
+    for (List<Line> direction : group(lines, ANGLE_ORDER, ANGLE_TOLERANCE, true)) {
+      for (List<Line> line : group(direction, OFFSET_ORDER, OFFSET_TOLERANCE, false)) {
+        if (line.size() > 1) {
+          findChains(line);
+        }
+      }
+    }
+
+    // Connect the new walls
+    Map<Wall, MergedWall> mergedWalls = new IdentityHashMap<Wall, MergedWall>();
+    for (MergedWall mergedWall : target) {
+      for (Wall wall : mergedWall.walls) {
+        mergedWalls.put(wall, mergedWall);
+      }
+    }
+    for (MergedWall mergedWall : target) {
+      mergedWall.resolveNeighbors(mergedWalls);
+    }
+
+    // Find the other walls, which reference a merged wall, as deleteWall detaches them
+    for (Wall wall : home.getWalls()) {
+      if (!mergedWalls.containsKey(wall)) {
+        MergedWall mergedWall = mergedWalls.get(wall.getWallAtStart());
+        if (mergedWall != null) {
+          mergedWall.addReference(wall, true);
+        }
+        mergedWall = mergedWalls.get(wall.getWallAtEnd());
+        if (mergedWall != null) {
+          mergedWall.addReference(wall, false);
+        }
+      }
+    }
+
+    this.oldSelection = home.getSelectedItems();
+    this.newSelection = new ArrayList<Selectable>(oldSelection.size());
+    for (Selectable item : oldSelection) {
+      MergedWall mergedWall = item instanceof Wall ? mergedWalls.get(item) : null;
+      if (mergedWall == null) {
+        newSelection.add(item);
+      } else if (mergedWall.walls.get(0) == item) {
+        newSelection.add(mergedWall.wall);
+      }
+    }
+  }
+
+  /**
+   * Sorts the lines and splits them into groups of lines with similar values.
+   *
+   * @param lines the lines to group
+   * @param order the order of the values
+   * @param tolerance the maximum difference of the values of two neighbors in a group
+   * @param angles indicates that the values are angles, where the first and the last group may be the same
+   * @return the groups
+   */
+  private static List<List<Line>> group(List<Line> lines, Comparator<Line> order, double tolerance, boolean angles) {
+    Collections.sort(lines, order);
+    List<List<Line>> groups = new ArrayList<List<Line>>();
+    List<Line> group = null;
+    double lastValue = 0;
+    for (Line line : lines) {
+      double value = angles ? line.angle : line.offset;
+      if (group == null || value - lastValue > tolerance) {
+        group = new ArrayList<Line>();
+        groups.add(group);
+      }
+      group.add(line);
+      lastValue = value;
+    }
+    if (angles && groups.size() > 1) {
+      // Walls pointing to the left may have an angle close to PI or close to -PI
+      List<Line> first = groups.get(0);
+      List<Line> last = groups.get(groups.size() - 1);
+      if (first.get(0).angle + 2 * Math.PI - last.get(last.size() - 1).angle <= tolerance) {
+        first.addAll(last);
+        groups.remove(groups.size() - 1);
+      }
+    }
+    return groups;
+  }
+
+  /**
+   * Finds the chains of mergeable walls on one line.
+   *
+   * @param line the walls with the same direction and offset
+   */
+  private void findChains(List<Line> line) {
+    Line reference = line.get(0);
+    for (Line candidate : line) {
+      candidate.position = reference.dx * candidate.wall.getXStart() + reference.dy * candidate.wall.getYStart();
+    }
+    Collections.sort(line, POSITION_ORDER);
+
+    List<Wall> chain = new ArrayList<Wall>();
+    for (Line candidate : line) {
+      if (!chain.isEmpty() && !canMerge(chain.get(0), chain.get(chain.size() - 1), candidate.wall)) {
+        if (chain.size() > 1) {
+          target.add(new MergedWall(chain));
+        }
+        chain = new ArrayList<Wall>();
+      }
+      chain.add(candidate.wall);
+    }
+    if (chain.size() > 1) {
+      target.add(new MergedWall(chain));
+    }
+  }
+
+  /**
+   * Indicates that the given wall may continue the given chain.
+   *
+   * @param first the first wall of the chain
+   * @param last the last wall of the chain
+   * @param wall the next wall
+   * @return {@code true} if the wall continues the chain
+   */
+  private static boolean canMerge(Wall first, Wall last, Wall wall) {
+    // The walls have to meet and may not be joined with other walls at the common point
+    double gap = Math.hypot(wall.getXStart() - last.getXEnd(), wall.getYStart() - last.getYEnd());
+    boolean joined = last.getWallAtEnd() == wall && wall.getWallAtStart() == last;
+    boolean free = last.getWallAtEnd() == null && wall.getWallAtStart() == null;
+    if (gap > OFFSET_TOLERANCE || !joined && !free) {
+      return false;
+    }
+
+    // The common point has to stay close to the line of the merged wall
+    double dx = wall.getXEnd() - first.getXStart();
+    double dy = wall.getYEnd() - first.getYStart();
+    double distance = Math.abs(dx * (last.getYEnd() - first.getYStart()) - dy * (last.getXEnd() - first.getXStart()))
+        / Math.hypot(dx, dy);
+    if (distance > OFFSET_TOLERANCE) {
+      return false;
+    }
+
+    return first.getThickness() == wall.getThickness() && isStraight(first) && isStraight(wall)
+        && equal(first.getHeight(), wall.getHeight()) && equal(first.getLeftSideColor(), wall.getLeftSideColor())
+        && equal(first.getRightSideColor(), wall.getRightSideColor())
+        && equal(first.getLeftSideTexture(), wall.getLeftSideTexture())
+        && equal(first.getRightSideTexture(), wall.getRightSideTexture())
+        && first.getLeftSideShininess() == wall.getLeftSideShininess()
+        && first.getRightSideShininess() == wall.getRightSideShininess()
+        && equal(first.getLeftSideBaseboard(), wall.getLeftSideBaseboard())
+        && equal(first.getRightSideBaseboard(), wall.getRightSideBaseboard())
+        && equal(first.getPattern(), wall.getPattern()) && equal(first.getTopColor(), wall.getTopColor())
+        && equal(first.getLevel(), wall.getLevel());
+  }
+
+  /**
+   * Indicates that the top of the given wall is horizontal.
+   */
+  private static boolean isStraight(Wall wall) {
+    return wall.getHeightAtEnd() == null || wall.getHeightAtEnd().equals(wall.getHeight());
+  }
+
+  private static boolean equal(Object value1, Object value2) {
+    return value1 == null ? value2 == null : value1.equals(value2);
+  }
+
+  /**
+   * The count of walls, which are created from the merged walls.
+   *
+   * @return the count of new walls
+   */
+  public int getMergedWallCount() {
+    return target.size();
+  }
+
+  @Override
+  public void doAction() {
+    for (MergedWall mergedWall : target) {
+      for (Wall wall : mergedWall.walls) {
+        home.deleteWall(wall);
+      }
+    }
+    for (MergedWall mergedWall : target) {
+      mergedWall.add(home);
+    }
+    home.setSelectedItems(newSelection);
+  }
+
+  @Override
+  public void undoAction() {
+    for (MergedWall mergedWall : target) {
+      home.deleteWall(mergedWall.wall);
+    }
+    for (MergedWall mergedWall : target) {
+      mergedWall.restore(home);
+    }
+    home.setSelectedItems(oldSelection);
+  }
+
+  @Override
+  public String getPresentationName() {
+    return Msg.msg("MergeWallsAction.NAME");
+  }
+
+  /**
+   * One new wall and the walls it replaces.
+   */
+  public static final class MergedWall {
+    private final List<Wall> walls;
+    private final Wall[] joinedWalls;
+    private final Level[] levels;
+    private final Wall wall;
+    private final Wall wallAtStart;
+    private final Wall wallAtEnd;
+
+    /** The new walls to join at the start and end, if the joined walls are merged as well. */
+    private Wall mergedWallAtStart;
+    private Wall mergedWallAtEnd;
+
+    /** Indicates that the start of the joined walls is joined to this wall (if the joined walls are not merged). */
+    private boolean startOfWallAtStart;
+    private boolean startOfWallAtEnd;
+
+    /** The other walls, which reference one of the merged walls, and the merged wall they reference. */
+    private final List<Wall> referrers = new ArrayList<Wall>(0);
+    private final List<Boolean> referrersAtStart = new ArrayList<Boolean>(0);
+    private final List<Wall> referencedWalls = new ArrayList<Wall>(0);
+
+    /**
+     * Creates the new wall for a chain of walls.
+     *
+     * @param walls the walls to merge
+     */
+    MergedWall(List<Wall> walls) {
+      this.walls = walls;
+      this.joinedWalls = new Wall[walls.size() * 2];
+      this.levels = new Level[walls.size()];
+      for (int i = 0; i < walls.size(); i++) {
+        joinedWalls[i * 2] = walls.get(i).getWallAtStart();
+        joinedWalls[i * 2 + 1] = walls.get(i).getWallAtEnd();
+        levels[i] = walls.get(i).getLevel();
+      }
+      Wall first = walls.get(0);
+      Wall last = walls.get(walls.size() - 1);
+      this.wallAtStart = first.getWallAtStart();
+      this.wallAtEnd = last.getWallAtEnd();
+      this.wall = first.clone();
+      wall.setXEnd(last.getXEnd());
+      wall.setYEnd(last.getYEnd());
+      wall.setHeightAtEnd(last.getHeightAtEnd());
+    }
+
+    /**
+     * Finds the new walls of the joined walls, or the ends of the joined walls that reference this chain.
+     */
+    void resolveNeighbors(Map<Wall, MergedWall> mergedWalls) {
+      Wall first = walls.get(0);
+      Wall last = walls.get(walls.size() - 1);
+      if (wallAtStart != null) {
+        MergedWall neighbor = mergedWalls.get(wallAtStart);
+        startOfWallAtStart = wallAtStart.getWallAtStart() == first;
+        if (neighbor != null) {
+          mergedWallAtStart = neighbor.wall;
+        }
+      }
+      if (wallAtEnd != null) {
+        MergedWall neighbor = mergedWalls.get(wallAtEnd);
+        startOfWallAtEnd = wallAtEnd.getWallAtStart() == last;
+        if (neighbor != null) {
+          mergedWallAtEnd = neighbor.wall;
+        }
+      }
+    }
+
+    /**
+     * Remembers a wall, which is not merged, but references one of the merged walls at one of its ends.
+     *
+     * @param referrer the wall that references a merged wall
+     * @param atStart {@code true} if the start of the referrer references the merged wall
+     */
+    void addReference(Wall referrer, boolean atStart) {
+      referrers.add(referrer);
+      referrersAtStart.add(atStart);
+      referencedWalls.add(atStart ? referrer.getWallAtStart() : referrer.getWallAtEnd());
+    }
+
+    /**
+     * Adds the new wall to the home and joins it.
+     */
+    void add(Home home) {
+      // Home.addWall moves the wall to the selected level
+      home.addWall(wall);
+      wall.setLevel(levels[0]);
+      if (wallAtStart != null) {
+        if (mergedWallAtStart != null) {
+          wall.setWallAtStart(mergedWallAtStart);
+        } else {
+          wall.setWallAtStart(wallAtStart);
+          join(wallAtStart, startOfWallAtStart, wall);
+        }
+      }
+      if (wallAtEnd != null) {
+        if (mergedWallAtEnd != null) {
+          wall.setWallAtEnd(mergedWallAtEnd);
+        } else {
+          wall.setWallAtEnd(wallAtEnd);
+          join(wallAtEnd, startOfWallAtEnd, wall);
+        }
+      }
+      for (int i = 0; i < referrers.size(); i++) {
+        join(referrers.get(i), referrersAtStart.get(i), wall);
+      }
+    }
+
+    /**
+     * Adds the original walls to the home and joins them again.
+     */
+    void restore(Home home) {
+      for (int i = 0; i < walls.size(); i++) {
+        Wall original = walls.get(i);
+        home.addWall(original);
+        original.setLevel(levels[i]);
+        original.setWallAtStart(joinedWalls[i * 2]);
+        original.setWallAtEnd(joinedWalls[i * 2 + 1]);
+      }
+      if (wallAtStart != null && mergedWallAtStart == null) {
+        join(wallAtStart, startOfWallAtStart, walls.get(0));
+      }
+      if (wallAtEnd != null && mergedWallAtEnd == null) {
+        join(wallAtEnd, startOfWallAtEnd, walls.get(walls.size() - 1));
+      }
+      for (int i = 0; i < referrers.size(); i++) {
+        join(referrers.get(i), referrersAtStart.get(i), referencedWalls.get(i));
+      }
+    }
+
+    private static void join(Wall joinedWall, boolean atStart, Wall wall) {
+      if (atStart) {
+        joinedWall.setWallAtStart(wall);
+      } else {
+        joinedWall.setWallAtEnd(wall);
+      }
+    }
+  }
+
+}
@@ -1,7 +1,5 @@
 package de.starrunner.sweethome3d;
 
-import com.eteks.sweethome3d.model.SelectionEvent;
-import com.eteks.sweethome3d.model.SelectionListener;
 import com.eteks.sweethome3d.plugin.Plugin;
 import com.eteks.sweethome3d.plugin.PluginAction;
 
@@ -12,26 +10,29 @@ import com.eteks.sweethome3d.plugin.PluginAction;
  *
  * @author Tobias Liefke
  */
-public class MoveAction extends PluginAction {
+public class MoveAction extends PluginAction implements SelectionAnalyzer.Listener {
   private final Plugin plugin;
 
   /**
    * Creates a new instance of MoveAction.
    * 
    * @param plugin the parent plugin
+   * @param selectionAnalyzer the analyzer of the selection of the home
    */
-  public MoveAction(Plugin plugin) {
-    super("de.starrunner.sweethome3d.package", "MoveAction", MoveAction.class.getClassLoader(),
-        !plugin.getHome().getSelectedItems().isEmpty());
+  public MoveAction(Plugin plugin, SelectionAnalyzer selectionAnalyzer) {
+    super("de.starrunner.sweethome3d.package", "MoveAction", MoveAction.class.getClassLoader(), false);
     this.plugin = plugin;
+    selectionAnalyzer.addListener(this);
+  }
 
-    // Enable only if a selection is available
-    plugin.getHome().addSelectionListener(new SelectionListener() {
-      @Override
-      public void selectionChanged(SelectionEvent selectionEvent) {
-        setEnabled(!selectionEvent.getSelectedItems().isEmpty());
-      }
-    });
+  /**
+   * Enables this action only if a selection is available.
+   * 
+   * @see SelectionAnalyzer.Listener#selectionChanged(SelectionSummary)
+   */
+  @Override
+  public void selectionChanged(SelectionSummary summary) {
+    setEnabled(!summary.isEmpty());
   }
 
   /**
@@ -24,12 +24,10 @@ import de.starrunner.util.strings.Mnemonics;
  *
  * @author Tobias Liefke
  */
-public class MoveView extends ImmediateEditDialogView {
+public class MoveView extends TransformView {
 
   private static final long serialVersionUID = -1605093837636982800L;
 
-  private TransformEdit currentEdit;
-
   private NullableSpinnerLengthModel xModel;
   private NullableSpinnerLengthModel yModel;
 
@@ -72,6 +70,8 @@ public class MoveView extends ImmediateEditDialogView {
     add(ySpinner, new GridBagConstraints(1, 1, 1, 1, 1.0, 0.0, GridBagConstraints.LINE_END, GridBagConstraints.NONE,
         new Insets(5, 0, 5, 5), 0, 0));
     Mnemonics.configure(yLabel, ySpinner);
+
+    addPreviewComponents(2);
   }
 
   /**
@@ -79,23 +79,21 @@ public class MoveView extends ImmediateEditDialogView {
    */
   @Override
   public void displayView(View parentView) {
-    currentEdit = new TransformEdit(getTitle(), home);
-
-    showDialog(currentEdit);
+    showDialog(startEdit());
   }
 
   @Override
-  protected void apply() {
+  protected AffineTransform createTransformation() {
     // Check for correct input parameters
     Float x = xModel.getLength();
     Float y = yModel.getLength();
     if (x == null || y == null) {
-      return;
+      return null;
     }
 
     // Convert input parameters to affine transformation
-    currentEdit.transform(new AffineTransform(1, 0, 0, 1, preferences.getLengthUnit().unitToCentimeter(x),
-        preferences.getLengthUnit().unitToCentimeter(y)));
+    return new AffineTransform(1, 0, 0, 1, preferences.getLengthUnit().unitToCentimeter(x),
+        preferences.getLengthUnit().unitToCentimeter(y));
   }
 
 }
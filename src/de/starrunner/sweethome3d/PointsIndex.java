@@ -0,0 +1,310 @@
+package de.starrunner.sweethome3d;
+
+import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+
+/**
+ * Finds the points and lines of a {@link PointsModel} next to a position in constant time.
+ *
+ * The points are saved in a {@link SpatialHash} and the lines in every cell of a second one they cross. The cell size
+ * is chosen from the bounds and the count of points, so each cell contains about one point. Both are updated from the
+ * ranges of the events of the model, only a change of most points or of the count of points by more than the half
+ * builds them again. The area of the lines changed by these updates is collected, so a view of the points only needs to
+ * draw that area again.
+ *
+ * Copyright (c) 2016 by Tobias Liefke
+ *
+ * @author Tobias Liefke
+ */
+public class PointsIndex implements ListDataListener {
+
+  /**
+   * A point of the model, as saved in the hashes.
+   */
+  private static final class Vertex {
+    /** The current index of the point in the model. */
+    private int index;
+
+    /** The coordinates of the point, when it was added. */
+    private float x;
+    private float y;
+
+    /** The coordinates of the end of the line to the next point, when it was added ({@code null} if none). */
+    private float[] lineEnd;
+
+    Vertex(int index) {
+      this.index = index;
+    }
+  }
+
+  private final PointsModel model;
+  private final List<Vertex> vertices = new ArrayList<Vertex>();
+  private SpatialHash<Vertex> points;
+  private SpatialHash<Vertex> lines;
+  private boolean valid;
+  /** The area of the lines removed and added since the last call of {@link #takeChangedArea()}. */
+  private Rectangle2D changedArea;
+  /** Indicates that the hashes were built again since the last call of {@link #takeChangedArea()}. */
+  private boolean changedAreaUnknown = true;
+
+  /**
+   * Creates a new instance of PointsIndex and registers it at the model.
+   *
+   * @param model the model of the indexed points
+   */
+  public PointsIndex(PointsModel model) {
+    this.model = model;
+    model.addListDataListener(this);
+  }
+
+  /**
+   * Finds the point with the smallest distance to the given position.
+   *
+   * @param x the x coordinate of the position
+   * @param y the y coordinate of the position
+   * @param maxDistance the maximum distance of the point to the position
+   * @param excludedIndex the index of a point to ignore, -1 to accept all points
+   * @return the index of the point or -1 if none is found within the distance
+   */
+  public int findNearestPoint(float x, float y, float maxDistance, final int excludedIndex) {
+    validate();
+    Vertex vertex = points.findNearest(x, y, maxDistance, new SpatialHash.Filter<Vertex>() {
+      @Override
+      public boolean accept(Vertex value) {
+        return value.index != excludedIndex;
+      }
+    });
+    return vertex == null ? -1 : vertex.index;
+  }
+
+  /**
+   * Finds the line with the smallest distance to the given position.
+   *
+   * @param x the x coordinate of the position
+   * @param y the y coordinate of the position
+   * @param maxDistance the maximum distance of the line to the position
+   * @return the index of the start point of the line or -1 if none is found within the distance
+   */
+  public int findNearestLine(float x, float y, float maxDistance) {
+    validate();
+    Set<Vertex> candidates = new HashSet<Vertex>();
+    lines.findInCells(x, y, maxDistance, candidates);
+    int nearest = -1;
+    double nearestDistanceSq = (double) maxDistance * maxDistance;
+    for (Vertex vertex : candidates) {
+      double distanceSq = Line2D.ptSegDistSq(vertex.x, vertex.y, vertex.lineEnd[0], vertex.lineEnd[1], x, y);
+      if (distanceSq <= nearestDistanceSq) {
+        nearest = vertex.index;
+        nearestDistanceSq = distanceSq;
+      }
+    }
+    return nearest;
+  }
+
+  /**
+   * Finds the lines that may cross the given area.
+   *
+   * The result contains all lines in the cells that intersect the area, so some lines may be outside the area.
+   *
+   * @param area the area in plan coordinates
+   * @return the indices of the start points of the lines, in ascending order
+   */
+  public int[] findLines(Rectangle2D area) {
+    validate();
+    Set<Vertex> candidates = new HashSet<Vertex>();
+    lines.findInCells((float) area.getCenterX(), (float) area.getCenterY(),
+      (float) Math.max(area.getWidth(), area.getHeight()) / 2, candidates);
+    int[] indices = new int[candidates.size()];
+    int next = 0;
+    for (Vertex vertex : candidates) {
+      indices[next++] = vertex.index;
+    }
+    Arrays.sort(indices);
+    return indices;
+  }
+
+  /**
+   * Returns the area of all lines, which were removed or added since the last call, and starts a new collection.
+   *
+   * @return the area in plan coordinates, an empty area if no line changed or {@code null} if the changed area is
+   *         unknown, as the index was built again
+   */
+  public Rectangle2D takeChangedArea() {
+    Rectangle2D area = changedAreaUnknown ? null : changedArea != null ? changedArea : new Rectangle2D.Float();
+    validate();
+    changedArea = null;
+    changedAreaUnknown = false;
+    return area;
+  }
+
+  /**
+   * Marks the hashes to be built again on the next access.
+   */
+  private void invalidate() {
+    valid = false;
+    changedArea = null;
+    changedAreaUnknown = true;
+  }
+
+  /**
+   * Adds the bounds of a removed or added line to the changed area.
+   */
+  private void addChangedArea(float x1, float y1, float x2, float y2) {
+    if (changedArea == null) {
+      changedArea = new Rectangle2D.Float(x1, y1, 0, 0);
+    } else {
+      changedArea.add(x1, y1);
+    }
+    changedArea.add(x2, y2);
+  }
+
+  /**
+   * Builds the hashes again, if necessary.
+   */
+  private void validate() {
+    if (!valid) {
+      int count = model.getSize();
+      Rectangle2D bounds = model.getShape().getBounds2D();
+      float cellSize = (float) Math.max(bounds.getWidth(), bounds.getHeight()) / (float) Math.sqrt(Math.max(1, count));
+      points = new SpatialHash<Vertex>(cellSize, count);
+      lines = new SpatialHash<Vertex>(cellSize, count);
+      vertices.clear();
+      for (int i = 0; i < count; i++) {
+        Vertex vertex = new Vertex(i);
+        vertices.add(vertex);
+        addPoint(vertex);
+      }
+      for (Vertex vertex : vertices) {
+        addLine(vertex);
+      }
+      valid = true;
+    }
+  }
+
+  private void addPoint(Vertex vertex) {
+    float[] point = model.getPoint(vertex.index);
+    vertex.x = point[0];
+    vertex.y = point[1];
+    points.add(vertex.x, vertex.y, vertex);
+  }
+
+  /**
+   * Adds the line to the next point, if the model has such a line.
+   */
+  private void addLine(Vertex vertex) {
+    int count = model.getSize();
+    if (vertex.index < count - 1 || model.getTarget().isClosed() && count > 1) {
+      vertex.lineEnd = model.getPoint((vertex.index + 1) % count).clone();
+      lines.addLine(vertex.x, vertex.y, vertex.lineEnd[0], vertex.lineEnd[1], vertex);
+      if (valid) {
+        addChangedArea(vertex.x, vertex.y, vertex.lineEnd[0], vertex.lineEnd[1]);
+      }
+    }
+  }
+
+  private void removeLine(Vertex vertex) {
+    if (vertex.lineEnd != null) {
+      lines.removeLine(vertex.x, vertex.y, vertex.lineEnd[0], vertex.lineEnd[1], vertex);
+      addChangedArea(vertex.x, vertex.y, vertex.lineEnd[0], vertex.lineEnd[1]);
+      vertex.lineEnd = null;
+    }
+  }
+
+  /**
+   * Updates the lines that start at the given range of points, including the line that ends at the first point.
+   */
+  private void updateLines(int fromIndex, int toIndex) {
+    int count = vertices.size();
+    if (count > 0) {
+      int previousIndex = fromIndex > 0 ? fromIndex - 1 : count - 1;
+      if (previousIndex < fromIndex || previousIndex > toIndex) {
+        Vertex previous = vertices.get(previousIndex);
+        removeLine(previous);
+        addLine(previous);
+      }
+      for (int i = fromIndex; i <= toIndex && i < count; i++) {
+        Vertex vertex = vertices.get(i);
+        removeLine(vertex);
+        addLine(vertex);
+      }
+    }
+  }
+
+  /**
+   * Decides if a change of the given count of points is handled incrementally.
+   */
+  private boolean isIncremental(int changeCount, int newCount) {
+    return valid && changeCount <= newCount / 4 && newCount <= vertices.size() * 2 && newCount * 2 >= vertices.size();
+  }
+
+  /**
+   * @see ListDataListener#intervalAdded(ListDataEvent)
+   */
+  @Override
+  public void intervalAdded(ListDataEvent e) {
+    int addCount = e.getIndex1() - e.getIndex0() + 1;
+    if (!isIncremental(addCount, model.getSize())) {
+      invalidate();
+      return;
+    }
+    for (int i = e.getIndex0(); i < vertices.size(); i++) {
+      vertices.get(i).index += addCount;
+    }
+    for (int i = e.getIndex0(); i <= e.getIndex1(); i++) {
+      Vertex vertex = new Vertex(i);
+      vertices.add(i, vertex);
+      addPoint(vertex);
+    }
+    updateLines(e.getIndex0(), e.getIndex1());
+  }
+
+  /**
+   * @see ListDataListener#intervalRemoved(ListDataEvent)
+   */
+  @Override
+  public void intervalRemoved(ListDataEvent e) {
+    int removeCount = e.getIndex1() - e.getIndex0() + 1;
+    if (!isIncremental(removeCount, model.getSize())) {
+      invalidate();
+      return;
+    }
+    for (int i = e.getIndex1(); i >= e.getIndex0(); i--) {
+      Vertex vertex = vertices.remove(i);
+      points.remove(vertex.x, vertex.y, vertex);
+      removeLine(vertex);
+    }
+    for (int i = e.getIndex0(); i < vertices.size(); i++) {
+      vertices.get(i).index -= removeCount;
+    }
+    updateLines(e.getIndex0(), e.getIndex0() - 1);
+  }
+
+  /**
+   * @see ListDataListener#contentsChanged(ListDataEvent)
+   */
+  @Override
+  public void contentsChanged(ListDataEvent e) {
+    int fromIndex = Math.min(e.getIndex0(), e.getIndex1());
+    int toIndex = Math.max(e.getIndex0(), e.getIndex1());
+    if (fromIndex < 0 || !isIncremental(toIndex - fromIndex + 1, model.getSize())) {
+      invalidate();
+      return;
+    }
+    for (int i = fromIndex; i <= toIndex; i++) {
+      Vertex vertex = vertices.get(i);
+      points.remove(vertex.x, vertex.y, vertex);
+      removeLine(vertex);
+      addPoint(vertex);
+    }
+    updateLines(fromIndex, toIndex);
+  }
+
+}
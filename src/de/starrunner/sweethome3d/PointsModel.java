@@ -1,9 +1,9 @@
 package de.starrunner.sweethome3d;
 
-import java.awt.Shape;
-import java.awt.geom.GeneralPath;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
 import java.text.Format;
+import java.util.List;
 
 import javax.swing.AbstractListModel;
 import javax.swing.ListModel;
@@ -13,7 +13,9 @@ import com.eteks.sweethome3d.model.LengthUnit;
 /**
  * The points of an object in a list model.
  * 
- * The object is modified when a point in the list is changed.
+ * Changes of points are collected in a working buffer and written to the object with {@link #commit()}, as each
+ * write copies all points of the object and updates the plan and the 3D view. Adding and removing points writes any
+ * pending changes and modifies the object immediately.
  *
  * Copyright (c) 2016 by Tobias Liefke
  *
@@ -24,6 +26,8 @@ public class PointsModel extends AbstractListModel {
   private static final long serialVersionUID = 1L;
 
   private float[][] points = new float[0][];
+  private final PointsShape shape = new PointsShape();
+  private boolean modified;
   private PointsContainer target;
   private LengthUnit unit;
 
@@ -56,20 +60,14 @@ public class PointsModel extends AbstractListModel {
   }
 
   /**
-   * Creates a shape of the current points.
+   * The shape of the current points.
+   * 
+   * The shape is updated with every change of this model, only the changed points are copied.
    *
    * @return the shape of the current points
    */
-  public Shape createShape() {
-    GeneralPath path = new GeneralPath();
-    path.moveTo(points[0][0], points[0][1]);
-    for (int i = 1; i < points.length; i++) {
-      path.lineTo(points[i][0], points[i][1]);
-    }
-    if (target.isClosed()) {
-      path.closePath();
-    }
-    return path;
+  public PointsShape getShape() {
+    return shape;
   }
 
   /**
@@ -78,19 +76,56 @@ public class PointsModel extends AbstractListModel {
    * @param target The new object to edit.
    */
   public void setTarget(PointsContainer target) {
+    commit();
     this.target = null;
     int oldSize = this.points.length;
     if (oldSize > 0) {
       this.points = new float[0][];
+      shape.setPoints(points);
       fireIntervalRemoved(this, 0, oldSize - 1);
     }
     this.target = target;
     this.points = target.getPoints();
+    shape.setClosed(target.isClosed());
+    shape.setPoints(points);
     if (points.length > 0) {
       fireIntervalAdded(this, 0, points.length - 1);
     }
   }
 
+  /**
+   * Indicates that points were changed since the last {@link #commit()}.
+   *
+   * @return {@code true} if the target doesn't contain the current points
+   */
+  public boolean isModified() {
+    return modified;
+  }
+
+  /**
+   * Writes the changed points to the target.
+   */
+  public void commit() {
+    if (modified) {
+      modified = false;
+      target.setPoints(points);
+    }
+  }
+
+  /**
+   * Forgets the changed points, without writing them to the target.
+   * 
+   * The model shows the current points of the target afterwards.
+   */
+  public void discard() {
+    if (modified) {
+      modified = false;
+      this.points = target.getPoints();
+      shape.setPoints(points);
+      fireContentsChanged(this, 0, points.length - 1);
+    }
+  }
+
   /**
    * The coordinates of the point at the given index.
    *
@@ -137,7 +172,8 @@ public class PointsModel extends AbstractListModel {
       point[0] += dx;
       point[1] += dy;
     }
-    target.setPoints(points);
+    shape.setPoints(points, 0, points.length - 1);
+    modified = true;
     fireContentsChanged(this, 0, points.length - 1);
   }
 
@@ -151,7 +187,8 @@ public class PointsModel extends AbstractListModel {
   public void setPoint(int index, float x, float y) {
     points[index][0] = x;
     points[index][1] = y;
-    target.setPoints(points);
+    shape.setPoint(index, x, y);
+    modified = true;
     fireContentsChanged(this, index, index);
   }
 
@@ -163,7 +200,8 @@ public class PointsModel extends AbstractListModel {
    */
   public void setX(int index, float x) {
     points[index][0] = x;
-    target.setPoints(points);
+    shape.setPoint(index, x, points[index][1]);
+    modified = true;
     fireContentsChanged(this, index, index);
   }
 
@@ -175,10 +213,47 @@ public class PointsModel extends AbstractListModel {
    */
   public void setY(int index, float y) {
     points[index][1] = y;
-    target.setPoints(points);
+    shape.setPoint(index, points[index][0], y);
+    modified = true;
     fireContentsChanged(this, index, index);
   }
 
+  /**
+   * Calculates the center of the given points.
+   *
+   * @param indices the indices of the points
+   * @return an array with the average coordinates [x, y]
+   */
+  public float[] getCenter(int[] indices) {
+    double x = 0;
+    double y = 0;
+    for (int index : indices) {
+      x += points[index][0];
+      y += points[index][1];
+    }
+    return new float[] { (float) (x / indices.length), (float) (y / indices.length) };
+  }
+
+  /**
+   * Transforms the given points in one pass.
+   *
+   * Listeners are notified once for the range of changed points.
+   *
+   * @param indices the indices of the points, in ascending order
+   * @param transform the transformation to apply to each point
+   */
+  public void transform(int[] indices, AffineTransform transform) {
+    if (indices.length > 0) {
+      for (int index : indices) {
+        float[] point = points[index];
+        transform.transform(point, 0, point, 0, 1);
+        shape.setPoint(index, point[0], point[1]);
+      }
+      modified = true;
+      fireContentsChanged(this, indices[0], indices[indices.length - 1]);
+    }
+  }
+
   /**
    * Adds a point at the given index.
    *
@@ -187,8 +262,10 @@ public class PointsModel extends AbstractListModel {
    * @param y the y coordinate of the point
    */
   public void addPoint(int index, float x, float y) {
+    commit();
     target.addPoint(index, x, y);
     this.points = target.getPoints();
+    shape.addPoint(index, points[index][0], points[index][1]);
     fireIntervalAdded(this, index, index);
   }
 
@@ -198,11 +275,92 @@ public class PointsModel extends AbstractListModel {
    * @param index the index of the point
    */
   public void removePoint(int index) {
+    commit();
     target.removePoint(index);
     this.points = target.getPoints();
+    shape.removePoint(index);
     fireIntervalRemoved(this, index, index);
   }
 
+  /**
+   * Removes the points with the given indices from the target at once.
+   *
+   * @param indices the indices of the points, in ascending order
+   */
+  public void removePoints(int[] indices) {
+    if (indices.length == 1) {
+      removePoint(indices[0]);
+    } else if (indices.length > 1) {
+      // Keep the remaining points in one pass
+      int oldSize = points.length;
+      float[][] remainingPoints = new float[oldSize - indices.length][];
+      int next = 0;
+      int removed = 0;
+      for (int i = 0; i < oldSize; i++) {
+        if (removed < indices.length && indices[removed] == i) {
+          removed++;
+        } else {
+          remainingPoints[next++] = points[i];
+        }
+      }
+      modified = false;
+      target.setPoints(remainingPoints);
+      this.points = target.getPoints();
+      shape.setPoints(points);
+
+      int first = indices[0];
+      int last = indices[indices.length - 1];
+      if (last - first + 1 == indices.length) {
+        fireIntervalRemoved(this, first, last);
+      } else {
+        // The list is shorter and all points after the first removed one have changed
+        fireIntervalRemoved(this, points.length, oldSize - 1);
+        fireContentsChanged(this, first, points.length - 1);
+      }
+    }
+  }
+
+  /**
+   * Finds the points, which are necessary to keep the current shape within the given tolerance.
+   *
+   * @param simplifier the algorithm to use
+   * @param tolerance the tolerance in cm
+   * @return the indices of the points to keep, in ascending order
+   */
+  public int[] simplify(PolylineSimplifier simplifier, float tolerance) {
+    return simplifier.simplify(points, target.isClosed(), tolerance);
+  }
+
+  /**
+   * Finds the points where the lines between the current points cross or touch each other.
+   *
+   * @return the intersection points, each as array with [x, y]
+   */
+  public List<float[]> findIntersections() {
+    return SelfIntersectionDetector.findIntersections(points, target.isClosed());
+  }
+
+  /**
+   * Removes all points except the given ones from the target at once.
+   *
+   * @param indices the indices of the points to keep, in ascending order
+   *
+   * @see #simplify(PolylineSimplifier, float)
+   */
+  public void retainPoints(int[] indices) {
+    int[] removedIndices = new int[points.length - indices.length];
+    int next = 0;
+    int kept = 0;
+    for (int i = 0; i < points.length; i++) {
+      if (kept < indices.length && indices[kept] == i) {
+        kept++;
+      } else {
+        removedIndices[next++] = i;
+      }
+    }
+    removePoints(removedIndices);
+  }
+
   /**
    * Moves a point from one index to another.
    *
@@ -218,7 +376,8 @@ public class PointsModel extends AbstractListModel {
         System.arraycopy(points, newIndex, points, newIndex + 1, index - newIndex);
       }
       points[newIndex] = point;
-      target.setPoints(points);
+      shape.setPoints(points, Math.min(index, newIndex), Math.max(index, newIndex));
+      modified = true;
       fireContentsChanged(this, index, newIndex);
     }
   }
@@ -349,7 +508,8 @@ public class PointsModel extends AbstractListModel {
       endPoint[0] = (float) (startPoint[0] + length * Math.cos(theta));
       endPoint[1] = (float) (startPoint[1] + length * Math.sin(theta));
     }
-    target.setPoints(points);
+    shape.setPoint(endIndex, endPoint[0], endPoint[1]);
+    modified = true;
     fireContentsChanged(this, endIndex, endIndex);
   }
 
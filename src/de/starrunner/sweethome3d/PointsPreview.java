@@ -1,15 +1,36 @@
 package de.starrunner.sweethome3d;
 
 import java.awt.*;
-import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
 import java.awt.geom.*;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 import javax.swing.*;
 import javax.swing.event.*;
 
 /**
  * Shows a preview of the current edited {@link PointsContainer}.
+ * 
+ * Points are selected by clicking on them or by dragging a rectangle around them. The selection is added to the
+ * current selection while the control key is pressed. Dragging a point moves it (or all selected points), a single
+ * point snaps to other points unless the shift key is pressed. A double click on a line inserts a new point. The
+ * points and lines under the mouse are found with a {@link PointsIndex}.
+ * 
+ * The shape is drawn into cached tiles, so changing the selection or moving the mouse only draws the markers above
+ * these tiles. The mouse wheel zooms in and out, dragging with the right or middle mouse button moves the zoomed shape.
+ * Panning only draws the tiles that become visible, and tiles at high zoom only stroke the lines in their area.
+ * Changing some points only draws the tiles again, which contain the changed lines of the {@link PointsIndex}.
+ * 
+ * The walls, rooms and furniture around the shape may be shown behind it, to check the alignment with them. They are
+ * drawn into tiles of their own, which are only drawn again if the zoom or the bounds of the shape change.
+ * 
+ * The result of a simplification may be shown on top of the current shape, together with the new count of points.
+ * Points where the lines of the shape cross or touch each other are marked, as they usually result from a mistake.
  *
  * Copyright (c) 2010 by Tobias Liefke
  *
@@ -18,12 +39,54 @@ import javax.swing.event.*;
 public class PointsPreview extends JComponent implements ListDataListener {
   private static final long serialVersionUID = 3980438894958387347L;
 
+  /** The maximum distance of the mouse to a point or line, in pixels. */
+  private static final double HIT_DISTANCE = 10;
+
+  /** The size of the cached tiles of the shape, in pixels. */
+  private static final int TILE_SIZE = 256;
+
+  /** The factor to zoom in or out for one step of the mouse wheel. */
+  private static final double ZOOM_STEP = 1.25;
+
+  /** The smallest zoom factor, which shows the area around the shape as well. */
+  private static final double MIN_ZOOM = 1 / 3.0;
+
   private JList list;
   private PointsModel model;
-  private Shape currentShape;
-  private Rectangle2D currentBounds;
+  private PointsIndex pointIndex;
+  private int hoverPoint = -1;
+  private int hoverLine = -1;
+  private int dragPoint = -1;
+  /** The transformation at the start of dragging a point, kept until the end as moving a point changes the bounds. */
+  private AffineTransform dragTransform;
   private boolean markNextLine;
   private boolean markPreviousLine;
+  private Point dragStart;
+  private Point dragEnd;
+  private int[] simplifiedIndices;
+  /** The zoom factor relative to the size, which fits the whole shape into the preview. */
+  private double zoom = 1;
+  /** The translation of the zoomed shape, in pixels. */
+  private int panX;
+  private int panY;
+  private Point panStart;
+
+  /** The cached tiles of the shape and the transformation used for them ({@code null} if the tiles are outdated). */
+  private final Map<Point, BufferedImage> tiles = new HashMap<Point, BufferedImage>();
+  private AffineTransform tilesTransform;
+  /** The outline of the shape in the space of the tiles, shared by all tiles ({@code null} if outdated). */
+  private Shape tilesOutline;
+  /** Indicates that the points changed since the tiles were drawn. */
+  private boolean pointsChanged;
+
+  /** The outlines of the walls and of the other objects around the shape ({@code null} if none). */
+  private Shape contextWalls;
+  private Shape contextOutlines;
+  /** The cached tiles of the context, which are kept when the points change but not the transformation. */
+  private final Map<Point, BufferedImage> contextTiles = new HashMap<Point, BufferedImage>();
+  private AffineTransform contextTransform;
+  /** The intersections of the shape, which are marked ({@code null} if none are known). */
+  private List<float[]> intersections;
 
   /**
    * Creates a new instance of PointsPreview.
@@ -36,6 +99,7 @@ public class PointsPreview extends JComponent implements ListDataListener {
     this.list = list;
     this.model = (PointsModel) list.getModel();
     model.addListDataListener(this);
+    this.pointIndex = new PointsIndex(model);
     list.getSelectionModel().addListSelectionListener(new ListSelectionListener() {
       @Override
       public void valueChanged(ListSelectionEvent e) {
@@ -45,37 +109,244 @@ public class PointsPreview extends JComponent implements ListDataListener {
     setPreferredSize(new Dimension(180, 180));
     setBorder(UIManager.getBorder("ScrollPane.border"));
 
-    addMouseListener(new MouseAdapter() {
+    MouseInputAdapter mouseHandler = new MouseInputAdapter() {
+      private Point2D lastDragPoint;
+
       @Override
       public void mouseClicked(MouseEvent e) {
         if (SwingUtilities.isLeftMouseButton(e) && e.getClickCount() == 1) {
-          try {
-            // First transform the point to plan coordinats
-            AffineTransform transform = createTransformation();
-            Point2D clickPoint = transform.inverseTransform(e.getPoint(), null);
-
-            // Now find the clicked point
-            int index = -1;
-            double minDistanceSqr = 10 / transform.getScaleX(); // The maximum click distance
-            minDistanceSqr *= minDistanceSqr;
-            for (int i = 0; i < model.getSize(); i++) {
-              float[] point = model.getPoint(i);
-              double distanceSqr = Point2D.distanceSq(clickPoint.getX(), clickPoint.getY(), point[0], point[1]);
-              if (distanceSqr < minDistanceSqr) {
-                minDistanceSqr = distanceSqr;
-                index = i;
-              }
+          int index = findPoint(e.getPoint());
+          if (index >= 0) {
+            if (!e.isControlDown()) {
+              list.setSelectedIndex(index);
+            } else if (list.isSelectedIndex(index)) {
+              list.removeSelectionInterval(index, index);
+            } else {
+              list.addSelectionInterval(index, index);
             }
-            if (index >= 0) {
+          }
+        } else if (SwingUtilities.isLeftMouseButton(e) && e.getClickCount() == 2 && findPoint(e.getPoint()) < 0) {
+          // Insert a new point into the line
+          int lineIndex = findLine(e.getPoint());
+          Point2D point = toPlan(e.getPoint());
+          if (lineIndex >= 0 && point != null) {
+            model.addPoint(lineIndex + 1, (float) point.getX(), (float) point.getY());
+            list.setSelectedIndex(lineIndex + 1);
+          }
+        }
+      }
+
+      @Override
+      public void mousePressed(MouseEvent e) {
+        if (!SwingUtilities.isLeftMouseButton(e)) {
+          panStart = e.getPoint();
+        } else {
+          int index = findPoint(e.getPoint());
+          if (index >= 0) {
+            // Drag the point (and the other selected points)
+            if (!e.isControlDown() && !list.isSelectedIndex(index)) {
               list.setSelectedIndex(index);
             }
-          } catch (NoninvertibleTransformException ex) {
-            // Ignore an return
-            return;
+            dragTransform = createTransformation();
+            dragPoint = index;
+            lastDragPoint = toPlan(e.getPoint());
+          } else {
+            dragStart = e.getPoint();
           }
         }
       }
-    });
+
+      @Override
+      public void mouseDragged(MouseEvent e) {
+        if (panStart != null) {
+          panX += e.getX() - panStart.x;
+          panY += e.getY() - panStart.y;
+          panStart = e.getPoint();
+          repaint();
+        } else if (dragPoint >= 0) {
+          dragPoint(e);
+        } else if (dragStart != null) {
+          dragEnd = e.getPoint();
+          repaint();
+        }
+      }
+
+      /**
+       * Moves the dragged point to the mouse position, or to a point near to it.
+       */
+      private void dragPoint(MouseEvent e) {
+        Point2D point = toPlan(e.getPoint());
+        int[] selectedIndices = list.getSelectedIndices();
+        if (point == null || dragPoint >= model.getSize()) {
+          return;
+        }
+        if (selectedIndices.length > 1 && list.isSelectedIndex(dragPoint)) {
+          model.transform(selectedIndices, AffineTransform.getTranslateInstance(point.getX() - lastDragPoint.getX(),
+            point.getY() - lastDragPoint.getY()));
+        } else {
+          // Snap to other points, unless shift is pressed
+          int snapIndex = e.isShiftDown() ? -1 : pointIndex.findNearestPoint((float) point.getX(),
+            (float) point.getY(), (float) (HIT_DISTANCE / dragTransform.getScaleX()), dragPoint);
+          if (snapIndex >= 0) {
+            float[] snapPoint = model.getPoint(snapIndex);
+            point.setLocation(snapPoint[0], snapPoint[1]);
+          }
+          model.setPoint(dragPoint, (float) point.getX(), (float) point.getY());
+        }
+        lastDragPoint = point;
+      }
+
+      @Override
+      public void mouseReleased(MouseEvent e) {
+        if (dragStart != null && dragEnd != null) {
+          selectPoints(new Rectangle(dragStart).union(new Rectangle(dragEnd)), e.isControlDown());
+        }
+        dragStart = null;
+        dragEnd = null;
+        panStart = null;
+        dragPoint = -1;
+        dragTransform = null;
+        repaint();
+      }
+
+      @Override
+      public void mouseMoved(MouseEvent e) {
+        int point = findPoint(e.getPoint());
+        int line = point < 0 ? findLine(e.getPoint()) : -1;
+        if (point != hoverPoint || line != hoverLine) {
+          hoverPoint = point;
+          hoverLine = line;
+          repaint();
+        }
+      }
+
+      @Override
+      public void mouseWheelMoved(MouseWheelEvent e) {
+        zoom(Math.pow(ZOOM_STEP, -e.getWheelRotation()), e.getPoint());
+      }
+
+      @Override
+      public void mouseExited(MouseEvent e) {
+        if (hoverPoint >= 0 || hoverLine >= 0) {
+          hoverPoint = -1;
+          hoverLine = -1;
+          repaint();
+        }
+      }
+    };
+    addMouseListener(mouseHandler);
+    addMouseMotionListener(mouseHandler);
+    addMouseWheelListener(mouseHandler);
+  }
+
+  /**
+   * Zooms in or out around the given position.
+   *
+   * Zooming stops once at the size that fits the whole shape into the preview, and zooming out stops at a third of that
+   * size.
+   *
+   * @param factor the factor to multiply with the current zoom
+   * @param center the position in the component, which keeps its place
+   */
+  public void zoom(double factor, Point center) {
+    double newZoom = Math.max(MIN_ZOOM, zoom * factor);
+    if (zoom < 1 != newZoom < 1 && zoom != 1) {
+      // Stop at the initial size when passing it
+      newZoom = 1;
+    }
+    if (newZoom == 1) {
+      panX = 0;
+      panY = 0;
+    } else {
+      // Keep the plan position under the center
+      panX = (int) Math.round(center.x - newZoom / zoom * (center.x - panX));
+      panY = (int) Math.round(center.y - newZoom / zoom * (center.y - panY));
+    }
+    zoom = newZoom;
+    repaint();
+  }
+
+  /**
+   * Transforms a position in the component to plan coordinates.
+   *
+   * @param position the position in the component
+   * @return the position in the plan or {@code null} if the preview is empty
+   */
+  private Point2D toPlan(Point position) {
+    try {
+      return createTransformation().inverseTransform(position, null);
+    } catch (NoninvertibleTransformException ex) {
+      return null;
+    }
+  }
+
+  /**
+   * Finds the point next to the given position in the component.
+   *
+   * @param position the position in the component
+   * @return the index of the point or -1 if no point is near enough
+   */
+  private int findPoint(Point position) {
+    Point2D point = toPlan(position);
+    if (point == null) {
+      return -1;
+    }
+    return pointIndex.findNearestPoint((float) point.getX(), (float) point.getY(),
+      (float) (HIT_DISTANCE / createTransformation().getScaleX()), -1);
+  }
+
+  /**
+   * Finds the line next to the given position in the component.
+   *
+   * @param position the position in the component
+   * @return the index of the start point of the line or -1 if no line is near enough
+   */
+  private int findLine(Point position) {
+    Point2D point = toPlan(position);
+    if (point == null) {
+      return -1;
+    }
+    return pointIndex.findNearestLine((float) point.getX(), (float) point.getY(),
+      (float) (HIT_DISTANCE / createTransformation().getScaleX()));
+  }
+
+  /**
+   * Selects all points within the given rectangle of the component.
+   *
+   * The selection is changed with a single event, to update the dialog only once.
+   *
+   * @param rectangle the rectangle in component coordinates
+   * @param add {@code true} to add the points to the current selection
+   */
+  private void selectPoints(Rectangle rectangle, boolean add) {
+    Rectangle2D bounds;
+    try {
+      bounds = createTransformation().createInverse().createTransformedShape(rectangle).getBounds2D();
+    } catch (NoninvertibleTransformException ex) {
+      // Nothing to select in an empty preview
+      return;
+    }
+    ListSelectionModel selectionModel = list.getSelectionModel();
+    selectionModel.setValueIsAdjusting(true);
+    try {
+      boolean cleared = add;
+      int runStart = -1;
+      for (int i = 0; i <= model.getSize(); i++) {
+        boolean inside = i < model.getSize() && bounds.contains(model.getPoint(i)[0], model.getPoint(i)[1]);
+        if (inside && runStart < 0) {
+          runStart = i;
+        } else if (!inside && runStart >= 0) {
+          if (!cleared) {
+            selectionModel.clearSelection();
+            cleared = true;
+          }
+          selectionModel.addSelectionInterval(runStart, i - 1);
+          runStart = -1;
+        }
+      }
+    } finally {
+      selectionModel.setValueIsAdjusting(false);
+    }
   }
 
   /**
@@ -86,32 +357,61 @@ public class PointsPreview extends JComponent implements ListDataListener {
     super.paintComponent(g);
     if (g instanceof Graphics2D && model != null) {
 
-      // Create a new graphics object
+      // Draw the shape from the cached tiles
+      AffineTransform transform = createTransformation();
+      if (getWidth() > 0 && getHeight() > 0) {
+        paintTiles(g, transform);
+      }
+
+      // Create a new graphics object for the overlay
       Graphics2D g2D = (Graphics2D) g.create();
       try {
-        // Create and apply the transformation
-        AffineTransform transform = createTransformation();
+        // Apply the transformation
         g2D.transform(transform);
         double scale = transform.getScaleX();
-
-        // Now draw the shape
         g2D.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        g2D.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.75f));
-        g2D.setColor(Color.GRAY);
-        if (model.getTarget().isFilled()) {
-          g2D.fill(currentShape);
-        }
-        g2D.setPaintMode();
         g2D.setColor(getForeground());
         g2D.setStroke(new BasicStroke(1.5f / (float) scale, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
-        g2D.draw(currentShape);
+
+        // Highlight the point or line under the mouse
+        int size = model.getSize();
+        if (hoverPoint >= 0 && hoverPoint < size) {
+          float[] point = model.getPoint(hoverPoint);
+          g2D.draw(new Ellipse2D.Double(point[0] - 5 / scale, point[1] - 5 / scale, 10 / scale, 10 / scale));
+        } else if (hoverLine >= 0 && hoverLine < size && size > 1) {
+          float[] start = model.getPoint(hoverLine);
+          float[] end = model.getPoint((hoverLine + 1) % size);
+          g2D.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.5f));
+          g2D.setStroke(new BasicStroke(4f / (float) scale, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+          g2D.draw(new Line2D.Float(start[0], start[1], end[0], end[1]));
+          g2D.setComposite(AlphaComposite.SrcOver);
+          g2D.setStroke(new BasicStroke(1.5f / (float) scale, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+        }
+
+        // Mark the intersections
+        if (intersections != null && !intersections.isEmpty()) {
+          g2D.setColor(Color.RED);
+          g2D.setStroke(new BasicStroke(1.5f / (float) scale));
+          for (float[] intersection : intersections) {
+            g2D.draw(new Ellipse2D.Double(intersection[0] - 5 / scale, intersection[1] - 5 / scale, 10 / scale,
+                10 / scale));
+          }
+          g2D.setStroke(new BasicStroke(1.5f / (float) scale, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+        }
 
         // And draw the selection
         int selectedIndex = list.getSelectedIndex();
         if (selectedIndex >= 0 && selectedIndex < model.getSize()) {
-          float[] point = model.getPoint(selectedIndex);
           g2D.setColor(getForeground());
           g2D.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.5f));
+          int maxIndex = Math.min(list.getMaxSelectionIndex(), model.getSize() - 1);
+          for (int i = selectedIndex + 1; i <= maxIndex; i++) {
+            if (list.isSelectedIndex(i)) {
+              float[] point = model.getPoint(i);
+              g2D.fill(new Ellipse2D.Double(point[0] - 3 / scale, point[1] - 3 / scale, 6 / scale, 6 / scale));
+            }
+          }
+          float[] point = model.getPoint(selectedIndex);
           g2D.fill(new Ellipse2D.Double(point[0] - 4 / scale, point[1] - 4 / scale, 8 / scale, 8 / scale));
 
           // And mark the incoming/outgoing lines
@@ -129,19 +429,308 @@ public class PointsPreview extends JComponent implements ListDataListener {
       } finally {
         g2D.dispose();
       }
+
+      // Draw the count of points of the simplified shape
+      if (simplifiedIndices != null) {
+        g.setColor(getForeground());
+        Insets insets = getInsets();
+        g.drawString(Msg.msg("PointsPreview.simplifiedLabel", simplifiedIndices.length, model.getSize()),
+          insets.left + 2, insets.top + 2 + g.getFontMetrics().getAscent());
+      }
+
+      // Draw the selection rectangle
+      if (dragStart != null && dragEnd != null) {
+        Graphics2D rectangleGraphics = (Graphics2D) g.create();
+        try {
+          Rectangle rectangle = new Rectangle(dragStart).union(new Rectangle(dragEnd));
+          rectangleGraphics.setColor(getForeground());
+          rectangleGraphics.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.2f));
+          rectangleGraphics.fill(rectangle);
+          rectangleGraphics.setComposite(AlphaComposite.SrcOver);
+          rectangleGraphics.draw(rectangle);
+        } finally {
+          rectangleGraphics.dispose();
+        }
+      }
+    }
+  }
+
+  /**
+   * Draws the shape and its simplification from the cached tiles.
+   *
+   * The tiles are aligned to the transformation without the translation of {@link #panX} and {@link #panY}, so
+   * panning only draws the tiles that become visible. Zooming draws all tiles again, changing some points only the
+   * tiles that contain the lines changed since the last paint.
+   *
+   * @param g the graphics context of the component
+   * @param transform the current transformation of the shape to the component
+   */
+  private void paintTiles(Graphics g, AffineTransform transform) {
+    // The transformation is not changed by a drag of a point, only the tiles with the changed lines are outdated then
+    AffineTransform tileTransform = AffineTransform.getTranslateInstance(-panX, -panY);
+    tileTransform.concatenate(transform);
+    Rectangle2D changedArea = pointsChanged ? pointIndex.takeChangedArea() : null;
+    if (!tileTransform.equals(tilesTransform) || pointsChanged && changedArea == null) {
+      tiles.clear();
+      tilesTransform = tileTransform;
+      tilesOutline = null;
+    } else if (changedArea != null) {
+      evictChangedTiles(tileTransform.createTransformedShape(changedArea).getBounds2D());
+    }
+    pointsChanged = false;
+    boolean hasContext = contextWalls != null || contextOutlines != null;
+    if (!hasContext || !tileTransform.equals(contextTransform)) {
+      contextTiles.clear();
+      contextTransform = tileTransform;
+    }
+
+    int minTileX = (int) Math.floor(-panX / (double) TILE_SIZE);
+    int minTileY = (int) Math.floor(-panY / (double) TILE_SIZE);
+    int maxTileX = (int) Math.floor((getWidth() - 1 - panX) / (double) TILE_SIZE);
+    int maxTileY = (int) Math.floor((getHeight() - 1 - panY) / (double) TILE_SIZE);
+    for (int tileX = minTileX; tileX <= maxTileX; tileX++) {
+      for (int tileY = minTileY; tileY <= maxTileY; tileY++) {
+        Point key = new Point(tileX, tileY);
+        if (hasContext) {
+          BufferedImage contextTile = contextTiles.get(key);
+          if (contextTile == null) {
+            contextTile = createContextTile(tileX, tileY, tileTransform);
+            contextTiles.put(key, contextTile);
+          }
+          g.drawImage(contextTile, tileX * TILE_SIZE + panX, tileY * TILE_SIZE + panY, null);
+        }
+        BufferedImage tile = tiles.get(key);
+        if (tile == null) {
+          tile = createTile(tileX, tileY, tileTransform);
+          tiles.put(key, tile);
+        }
+        g.drawImage(tile, tileX * TILE_SIZE + panX, tileY * TILE_SIZE + panY, null);
+      }
+    }
+
+    // Forget the tiles far away from the visible ones
+    int visibleCount = (maxTileX - minTileX + 1) * (maxTileY - minTileY + 1);
+    if (tiles.size() > visibleCount * 4) {
+      evictTiles(tiles, minTileX, minTileY, maxTileX, maxTileY);
+    }
+    if (contextTiles.size() > visibleCount * 4) {
+      evictTiles(contextTiles, minTileX, minTileY, maxTileX, maxTileY);
+    }
+  }
+
+  /**
+   * Removes the tiles, which contain a part of the given area, including a margin for the width of the lines.
+   *
+   * @param area the changed area in the space of the tiles
+   */
+  private void evictChangedTiles(Rectangle2D area) {
+    int minTileX = (int) Math.floor((area.getMinX() - 2) / TILE_SIZE);
+    int minTileY = (int) Math.floor((area.getMinY() - 2) / TILE_SIZE);
+    int maxTileX = (int) Math.floor((area.getMaxX() + 2) / TILE_SIZE);
+    int maxTileY = (int) Math.floor((area.getMaxY() + 2) / TILE_SIZE);
+    for (Iterator<Point> iterator = tiles.keySet().iterator(); iterator.hasNext();) {
+      Point key = iterator.next();
+      if (key.x >= minTileX && key.x <= maxTileX && key.y >= minTileY && key.y <= maxTileY) {
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Removes the tiles, which are not next to the visible ones.
+   */
+  private static void evictTiles(Map<Point, BufferedImage> cache, int minTileX, int minTileY, int maxTileX,
+      int maxTileY) {
+    for (Iterator<Point> iterator = cache.keySet().iterator(); iterator.hasNext();) {
+      Point key = iterator.next();
+      if (key.x < minTileX - 1 || key.x > maxTileX + 1 || key.y < minTileY - 1 || key.y > maxTileY + 1) {
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Creates an empty tile, compatible to the screen if possible.
+   */
+  private BufferedImage createTileImage() {
+    GraphicsConfiguration configuration = getGraphicsConfiguration();
+    return configuration != null ? configuration.createCompatibleImage(TILE_SIZE, TILE_SIZE, Transparency.TRANSLUCENT)
+        : new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_ARGB);
+  }
+
+  /**
+   * Draws one tile of the context.
+   *
+   * @param tileX the horizontal index of the tile
+   * @param tileY the vertical index of the tile
+   * @param tileTransform the transformation of the shape to the tiles
+   * @return the image of the tile
+   */
+  private BufferedImage createContextTile(int tileX, int tileY, AffineTransform tileTransform) {
+    BufferedImage tile = createTileImage();
+    AffineTransform transform = AffineTransform.getTranslateInstance(-tileX * TILE_SIZE, -tileY * TILE_SIZE);
+    transform.concatenate(tileTransform);
+    Rectangle tileBounds = new Rectangle(-2, -2, TILE_SIZE + 4, TILE_SIZE + 4);
+
+    Graphics2D g2D = tile.createGraphics();
+    try {
+      g2D.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+      g2D.setStroke(new BasicStroke(1f));
+      if (contextOutlines != null) {
+        Shape outlines = transform.createTransformedShape(contextOutlines);
+        if (outlines.intersects(tileBounds)) {
+          g2D.setColor(Color.LIGHT_GRAY);
+          g2D.draw(outlines);
+        }
+      }
+      if (contextWalls != null) {
+        Shape walls = transform.createTransformedShape(contextWalls);
+        if (walls.intersects(tileBounds)) {
+          g2D.setColor(new Color(0xD0D0D0));
+          g2D.fill(walls);
+          g2D.setColor(Color.GRAY);
+          g2D.draw(walls);
+        }
+      }
+    } finally {
+      g2D.dispose();
+    }
+    return tile;
+  }
+
+  /**
+   * Draws one tile of the shape.
+   *
+   * If only a small part of the shape is visible in the tile, only the lines found by the {@link PointsIndex} in the
+   * tile are stroked. Otherwise the whole shape is drawn without the points that share a pixel. This outline is only
+   * created once for all tiles, which fill it or draw it.
+   *
+   * @param tileX the horizontal index of the tile
+   * @param tileY the vertical index of the tile
+   * @param tileTransform the transformation of the shape to the tiles
+   * @return the image of the tile
+   */
+  private BufferedImage createTile(int tileX, int tileY, AffineTransform tileTransform) {
+    BufferedImage tile = createTileImage();
+    AffineTransform transform = AffineTransform.getTranslateInstance(-tileX * TILE_SIZE, -tileY * TILE_SIZE);
+    transform.concatenate(tileTransform);
+
+    Graphics2D g2D = tile.createGraphics();
+    try {
+      g2D.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+      // Fill the shape, the shared outline is moved to the tile by whole pixels
+      if (model.getTarget().isFilled()) {
+        g2D.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.75f));
+        g2D.setColor(Color.GRAY);
+        g2D.translate(-tileX * TILE_SIZE, -tileY * TILE_SIZE);
+        g2D.fill(getTilesOutline(tileTransform));
+        g2D.translate(tileX * TILE_SIZE, tileY * TILE_SIZE);
+        g2D.setPaintMode();
+      }
+
+      // Find the visible lines, including a margin for the width of the line
+      int[] lineIndices = null;
+      if (zoom > 1) {
+        try {
+          lineIndices = pointIndex.findLines(transform.createInverse()
+              .createTransformedShape(new Rectangle(-2, -2, TILE_SIZE + 4, TILE_SIZE + 4)).getBounds2D());
+        } catch (NoninvertibleTransformException ex) {
+          lineIndices = null;
+        }
+      }
+
+      // Stroke the lines
+      g2D.setColor(getForeground());
+      g2D.setStroke(new BasicStroke(1.5f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+      if (lineIndices != null && lineIndices.length < model.getSize() / 4) {
+        g2D.draw(createLines(lineIndices, transform));
+      } else {
+        g2D.translate(-tileX * TILE_SIZE, -tileY * TILE_SIZE);
+        g2D.draw(getTilesOutline(tileTransform));
+        g2D.translate(tileX * TILE_SIZE, tileY * TILE_SIZE);
+      }
+
+      // Draw the simplified shape above the current one
+      if (simplifiedIndices != null) {
+        g2D.setColor(Color.RED);
+        g2D.draw(transform.createTransformedShape(createSimplifiedShape()));
+      }
+    } finally {
+      g2D.dispose();
+    }
+    return tile;
+  }
+
+  /**
+   * The outline of the whole shape in the space of the tiles, without the points that share a pixel.
+   *
+   * @param tileTransform the transformation of the shape to the tiles
+   * @return the outline, which is created again after a change of the points or of the transformation
+   */
+  private Shape getTilesOutline(AffineTransform tileTransform) {
+    if (tilesOutline == null) {
+      tilesOutline = model.getShape().createDecimatedPath(tileTransform);
+    }
+    return tilesOutline;
+  }
+
+  /**
+   * Creates a path of the given lines in device space, consecutive lines are connected.
+   *
+   * @param lineIndices the indices of the start points of the lines, in ascending order
+   * @param transform the transformation to device space
+   * @return the path
+   */
+  private Shape createLines(int[] lineIndices, AffineTransform transform) {
+    Path2D.Float path = new Path2D.Float(Path2D.WIND_NON_ZERO, lineIndices.length * 2);
+    int size = model.getSize();
+    float[] point = new float[2];
+    int previousEnd = -1;
+    for (int index : lineIndices) {
+      if (index != previousEnd) {
+        transform.transform(model.getPoint(index), 0, point, 0, 1);
+        path.moveTo(point[0], point[1]);
+      }
+      previousEnd = (index + 1) % size;
+      transform.transform(model.getPoint(previousEnd), 0, point, 0, 1);
+      path.lineTo(point[0], point[1]);
+    }
+    return path;
+  }
+
+  /**
+   * Creates the shape that connects only the points of the simplification.
+   */
+  private Shape createSimplifiedShape() {
+    Path2D.Float path = new Path2D.Float(Path2D.WIND_NON_ZERO, simplifiedIndices.length + 1);
+    for (int index : simplifiedIndices) {
+      if (index < model.getSize()) {
+        float[] point = model.getPoint(index);
+        if (path.getCurrentPoint() == null) {
+          path.moveTo(point[0], point[1]);
+        } else {
+          path.lineTo(point[0], point[1]);
+        }
+      }
+    }
+    if (model.getTarget().isClosed() && path.getCurrentPoint() != null) {
+      path.closePath();
     }
+    return path;
   }
 
   /**
    * Creates the transformation of the room coordinates to the component.
    */
   private AffineTransform createTransformation() {
-    // First create the shape, if nessecary
-    if (currentShape == null) {
-      currentShape = model.createShape();
-      currentBounds = currentShape.getBounds2D();
+    if (dragTransform != null) {
+      return new AffineTransform(dragTransform);
     }
 
+    // The bounds are kept up to date by the shape itself
+    Rectangle2D currentBounds = model.getShape().getBounds2D();
+
     Insets insets = getInsets();
     int width = getWidth() - (insets.left + insets.right) - 16;
     int height = getHeight() - (insets.top + insets.bottom) - 16;
@@ -161,6 +750,13 @@ public class PointsPreview extends JComponent implements ListDataListener {
     }
     transform.scale(scale, scale);
 
+    // Zoom and pan
+    if (zoom != 1 || panX != 0 || panY != 0) {
+      AffineTransform view = AffineTransform.getTranslateInstance(panX, panY);
+      view.scale(zoom, zoom);
+      transform.preConcatenate(view);
+    }
+
     // And position the shape
     transform.translate(-(currentBounds.getX() + currentBounds.getWidth() / 2),
       -(currentBounds.getY() + currentBounds.getHeight() / 2));
@@ -205,6 +801,53 @@ public class PointsPreview extends JComponent implements ListDataListener {
     repaint();
   }
 
+  /**
+   * The points that are kept by a simplification.
+   *
+   * @return the indices of the points or {@code null} if no simplification is shown
+   */
+  public int[] getSimplifiedIndices() {
+    return simplifiedIndices;
+  }
+
+  /**
+   * Shows the result of a simplification on top of the current shape.
+   *
+   * @param simplifiedIndices the indices of the points that are kept or {@code null} to hide the simplification
+   */
+  public void setSimplifiedIndices(int[] simplifiedIndices) {
+    this.simplifiedIndices = simplifiedIndices;
+    tilesTransform = null;
+    repaint();
+  }
+
+  /**
+   * Marks the points where the lines of the shape cross or touch each other.
+   *
+   * Finding them takes too long to repeat for every step of a drag, so the old marks are kept when the points change
+   * until the new intersections are given.
+   *
+   * @param intersections the intersections, as found by {@link PointsModel#findIntersections()}, or {@code null} to
+   *          hide them
+   */
+  public void setIntersections(List<float[]> intersections) {
+    this.intersections = intersections;
+    repaint();
+  }
+
+  /**
+   * Shows the objects around the shape behind it.
+   *
+   * @param walls the outlines of the walls, which are filled, or {@code null} if none
+   * @param outlines the outlines of the other objects, or {@code null} if none
+   */
+  public void setContext(Shape walls, Shape outlines) {
+    this.contextWalls = walls;
+    this.contextOutlines = outlines;
+    contextTransform = null;
+    repaint();
+  }
+
   /**
    * @see ListDataListener#intervalAdded(ListDataEvent)
    */
@@ -226,7 +869,9 @@ public class PointsPreview extends JComponent implements ListDataListener {
    */
   @Override
   public void contentsChanged(ListDataEvent e) {
-    currentShape = null;
+    // The changed tiles are found by the index
+    tilesOutline = null;
+    pointsChanged = true;
     repaint();
   }
 
@@ -0,0 +1,581 @@
+package de.starrunner.sweethome3d;
+
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A polygon or polyline, whose points are stored in one float buffer and may be changed one by one.
+ *
+ * In contrast to a {@link java.awt.geom.GeneralPath}, changing a single point costs O(1) and doesn't need to build the
+ * path again. The bounds are updated together with the points and only calculated again, if a point that defined the
+ * bounds moves inwards.
+ * 
+ * The area, length and centroid are kept up to date in the same way: they are sums over all lines, so a changed point
+ * only changes the terms of the lines next to it.
+ *
+ * Copyright (c) 2016 by Tobias Liefke
+ *
+ * @author Tobias Liefke
+ */
+public class PointsShape implements Shape {
+
+  private float[] coordinates = new float[0];
+  private int pointCount;
+  private boolean closed;
+
+  private boolean boundsValid = true;
+  private float minX;
+  private float minY;
+  private float maxX;
+  private float maxY;
+
+  private boolean sumsValid = true;
+  /** The sum of the cross products of the lines (twice the signed area). */
+  private double crossSum;
+  /** The sums of the centers of the lines weighted with the cross products. */
+  private double crossXSum;
+  private double crossYSum;
+  /** The sum of the lengths of the lines. */
+  private double lengthSum;
+  /** The sums of the centers of the lines weighted with their lengths. */
+  private double lengthXSum;
+  private double lengthYSum;
+
+  /**
+   * Indicates that this shape is closed from the last point to the first point.
+   *
+   * @return {@code true} for a polygon, {@code false} for a polyline
+   */
+  public boolean isClosed() {
+    return closed;
+  }
+
+  /**
+   * Changes if this shape is closed from the last point to the first point.
+   *
+   * @param closed {@code true} for a polygon, {@code false} for a polyline
+   */
+  public void setClosed(boolean closed) {
+    if (this.closed != closed) {
+      this.closed = closed;
+      sumsValid = false;
+    }
+  }
+
+  /**
+   * The count of points.
+   *
+   * @return the count of points in this shape
+   */
+  public int getPointCount() {
+    return pointCount;
+  }
+
+  /**
+   * Replaces all points.
+   *
+   * @param points the new points, each as array with [x, y]
+   */
+  public void setPoints(float[][] points) {
+    pointCount = 0;
+    ensureCapacity(points.length);
+    pointCount = points.length;
+    boundsValid = false;
+    sumsValid = false;
+    setPoints(points, 0, points.length - 1);
+  }
+
+  /**
+   * Copies a range of the given points into this shape.
+   *
+   * @param points the points, with at least the count of points of this shape
+   * @param fromIndex the index of the first changed point
+   * @param toIndex the index of the last changed point (inclusive)
+   */
+  public void setPoints(float[][] points, int fromIndex, int toIndex) {
+    for (int i = fromIndex; i <= toIndex; i++) {
+      setPoint(i, points[i][0], points[i][1]);
+    }
+  }
+
+  /**
+   * Changes the point at the given index.
+   *
+   * @param index the index of the point
+   * @param x the new x coordinate
+   * @param y the new y coordinate
+   */
+  public void setPoint(int index, float x, float y) {
+    if (index < 0 || index >= pointCount) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + pointCount);
+    }
+    float oldX = coordinates[index * 2];
+    float oldY = coordinates[index * 2 + 1];
+    int previous = getPrevious(index);
+    int next = getNext(index);
+    if (sumsValid) {
+      addLines(previous, index, next, -1);
+    }
+    coordinates[index * 2] = x;
+    coordinates[index * 2 + 1] = y;
+    if (sumsValid) {
+      addLines(previous, index, next, 1);
+    }
+    if (boundsValid) {
+      if (oldX == minX && x > minX || oldX == maxX && x < maxX || oldY == minY && y > minY || oldY == maxY
+          && y < maxY) {
+        // The point defined the bounds and moved inwards
+        boundsValid = false;
+      } else {
+        addToBounds(x, y);
+      }
+    }
+  }
+
+  /**
+   * Inserts a point.
+   *
+   * @param index the index of the new point
+   * @param x the x coordinate
+   * @param y the y coordinate
+   */
+  public void addPoint(int index, float x, float y) {
+    if (index < 0 || index > pointCount) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + pointCount);
+    }
+    ensureCapacity(pointCount + 1);
+    if (sumsValid) {
+      // The new point is inserted into the line between the previous and the next point
+      int previous = index > 0 ? index - 1 : closed && pointCount > 0 ? pointCount - 1 : -1;
+      int next = index < pointCount ? index : closed && pointCount > 0 ? 0 : -1;
+      if (previous >= 0 && next >= 0 && pointCount > 1) {
+        addLine(previous, next, -1);
+      }
+      if (previous >= 0) {
+        addLine(coordinates[previous * 2], coordinates[previous * 2 + 1], x, y, 1);
+      }
+      if (next >= 0) {
+        addLine(x, y, coordinates[next * 2], coordinates[next * 2 + 1], 1);
+      }
+    }
+    System.arraycopy(coordinates, index * 2, coordinates, index * 2 + 2, (pointCount - index) * 2);
+    coordinates[index * 2] = x;
+    coordinates[index * 2 + 1] = y;
+    pointCount++;
+    if (boundsValid) {
+      addToBounds(x, y);
+    }
+  }
+
+  /**
+   * Removes a point.
+   *
+   * @param index the index of the point
+   */
+  public void removePoint(int index) {
+    if (index < 0 || index >= pointCount) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + pointCount);
+    }
+    float x = coordinates[index * 2];
+    float y = coordinates[index * 2 + 1];
+    if (sumsValid) {
+      // The lines to and from the point are replaced by one line from the previous to the next point
+      int previous = getPrevious(index);
+      int next = getNext(index);
+      addLines(previous, index, next, -1);
+      if (previous >= 0 && next >= 0 && previous != next) {
+        addLine(previous, next, 1);
+      }
+    }
+    System.arraycopy(coordinates, index * 2 + 2, coordinates, index * 2, (pointCount - index - 1) * 2);
+    pointCount--;
+    if (x == minX || x == maxX || y == minY || y == maxY) {
+      boundsValid = false;
+    }
+  }
+
+  /**
+   * The index of the point before the given one.
+   *
+   * @return the index or -1 if there is no line to the given point
+   */
+  private int getPrevious(int index) {
+    return index > 0 ? index - 1 : closed && pointCount > 1 ? pointCount - 1 : -1;
+  }
+
+  /**
+   * The index of the point after the given one.
+   *
+   * @return the index or -1 if there is no line from the given point
+   */
+  private int getNext(int index) {
+    return index < pointCount - 1 ? index + 1 : closed && pointCount > 1 ? 0 : -1;
+  }
+
+  /**
+   * Adds the terms of the lines to and from a point to the sums (or subtracts them for a negative sign).
+   */
+  private void addLines(int previous, int index, int next, int sign) {
+    if (previous >= 0) {
+      addLine(previous, index, sign);
+    }
+    if (next >= 0) {
+      addLine(index, next, sign);
+    }
+  }
+
+  /**
+   * Adds the terms of the line between two points to the sums (or subtracts them for a negative sign).
+   */
+  private void addLine(int start, int end, int sign) {
+    addLine(coordinates[start * 2], coordinates[start * 2 + 1], coordinates[end * 2], coordinates[end * 2 + 1], sign);
+  }
+
+  /**
+   * Adds the terms of a line to the sums (or subtracts them for a negative sign).
+   */
+  private void addLine(double x1, double y1, double x2, double y2, int sign) {
+    double cross = (x1 * y2 - x2 * y1) * sign;
+    double length = Math.sqrt((x2 - x1) * (x2 - x1) + (y2 - y1) * (y2 - y1)) * sign;
+    crossSum += cross;
+    crossXSum += (x1 + x2) * cross;
+    crossYSum += (y1 + y2) * cross;
+    lengthSum += length;
+    lengthXSum += (x1 + x2) / 2 * length;
+    lengthYSum += (y1 + y2) / 2 * length;
+  }
+
+  /**
+   * Calculates the sums from all lines.
+   */
+  private void validateSums() {
+    if (!sumsValid) {
+      crossSum = crossXSum = crossYSum = lengthSum = lengthXSum = lengthYSum = 0;
+      for (int i = 0; i < pointCount; i++) {
+        int next = getNext(i);
+        if (next >= 0) {
+          addLine(i, next, 1);
+        }
+      }
+      sumsValid = true;
+    }
+  }
+
+  /**
+   * The area enclosed by this shape.
+   *
+   * Calculated with the shoelace formula, so the parts of a self-intersecting polygon with opposite orientation reduce
+   * the area.
+   *
+   * @return the area of a polygon or 0 for a polyline
+   */
+  public float getArea() {
+    if (!closed) {
+      return 0;
+    }
+    validateSums();
+    return (float) Math.abs(crossSum / 2);
+  }
+
+  /**
+   * The length of all lines, including the line from the last to the first point of a polygon.
+   *
+   * @return the perimeter of a polygon or the length of a polyline
+   */
+  public float getLength() {
+    validateSums();
+    return (float) lengthSum;
+  }
+
+  /**
+   * The centroid of this shape.
+   *
+   * That is the centroid of the area for a polygon, or of the lines for a polyline or a polygon without area.
+   *
+   * @return the centroid or {@code null} if this shape has no points
+   */
+  public Point2D getCentroid() {
+    if (pointCount == 0) {
+      return null;
+    }
+    validateSums();
+    if (closed && Math.abs(crossSum) > 1e-6) {
+      return new Point2D.Double(crossXSum / (3 * crossSum), crossYSum / (3 * crossSum));
+    }
+    if (lengthSum > 1e-6) {
+      return new Point2D.Double(lengthXSum / lengthSum, lengthYSum / lengthSum);
+    }
+    return new Point2D.Float(coordinates[0], coordinates[1]);
+  }
+
+  /**
+   * Grows the buffer, if necessary.
+   */
+  private void ensureCapacity(int count) {
+    if (coordinates.length < count * 2) {
+      float[] newCoordinates = new float[Math.max(count * 2, coordinates.length * 3 / 2)];
+      System.arraycopy(coordinates, 0, newCoordinates, 0, pointCount * 2);
+      coordinates = newCoordinates;
+    }
+  }
+
+  /**
+   * Adds a point to the current bounds.
+   */
+  private void addToBounds(float x, float y) {
+    if (pointCount == 1) {
+      minX = maxX = x;
+      minY = maxY = y;
+    } else {
+      minX = Math.min(minX, x);
+      minY = Math.min(minY, y);
+      maxX = Math.max(maxX, x);
+      maxY = Math.max(maxY, y);
+    }
+  }
+
+  /**
+   * Calculates the bounds from all points.
+   */
+  private void validateBounds() {
+    if (!boundsValid) {
+      if (pointCount == 0) {
+        minX = minY = maxX = maxY = 0;
+      } else {
+        minX = maxX = coordinates[0];
+        minY = maxY = coordinates[1];
+        for (int i = 2; i < pointCount * 2; i += 2) {
+          float x = coordinates[i];
+          float y = coordinates[i + 1];
+          if (x < minX) {
+            minX = x;
+          } else if (x > maxX) {
+            maxX = x;
+          }
+          if (y < minY) {
+            minY = y;
+          } else if (y > maxY) {
+            maxY = y;
+          }
+        }
+      }
+      boundsValid = true;
+    }
+  }
+
+  /**
+   * @see Shape#getBounds()
+   */
+  @Override
+  public Rectangle getBounds() {
+    return getBounds2D().getBounds();
+  }
+
+  /**
+   * @see Shape#getBounds2D()
+   */
+  @Override
+  public Rectangle2D getBounds2D() {
+    validateBounds();
+    return new Rectangle2D.Float(minX, minY, maxX - minX, maxY - minY);
+  }
+
+  /**
+   * @see Shape#contains(double, double)
+   */
+  @Override
+  public boolean contains(double x, double y) {
+    return Path2D.contains(getPathIterator(null), x, y);
+  }
+
+  /**
+   * @see Shape#contains(Point2D)
+   */
+  @Override
+  public boolean contains(Point2D p) {
+    return contains(p.getX(), p.getY());
+  }
+
+  /**
+   * @see Shape#intersects(double, double, double, double)
+   */
+  @Override
+  public boolean intersects(double x, double y, double w, double h) {
+    return Path2D.intersects(getPathIterator(null), x, y, w, h);
+  }
+
+  /**
+   * @see Shape#intersects(Rectangle2D)
+   */
+  @Override
+  public boolean intersects(Rectangle2D r) {
+    return intersects(r.getX(), r.getY(), r.getWidth(), r.getHeight());
+  }
+
+  /**
+   * @see Shape#contains(double, double, double, double)
+   */
+  @Override
+  public boolean contains(double x, double y, double w, double h) {
+    return Path2D.contains(getPathIterator(null), x, y, w, h);
+  }
+
+  /**
+   * @see Shape#contains(Rectangle2D)
+   */
+  @Override
+  public boolean contains(Rectangle2D r) {
+    return contains(r.getX(), r.getY(), r.getWidth(), r.getHeight());
+  }
+
+  /**
+   * Iterates directly over the buffer of this shape.
+   *
+   * @see Shape#getPathIterator(AffineTransform)
+   */
+  @Override
+  public PathIterator getPathIterator(final AffineTransform at) {
+    return new PathIterator() {
+      private final int segmentCount = pointCount + (closed && pointCount > 0 ? 1 : 0);
+      private int index;
+
+      @Override
+      public int getWindingRule() {
+        return WIND_NON_ZERO;
+      }
+
+      @Override
+      public boolean isDone() {
+        return index >= segmentCount;
+      }
+
+      @Override
+      public void next() {
+        index++;
+      }
+
+      @Override
+      public int currentSegment(float[] coords) {
+        if (isDone()) {
+          throw new NoSuchElementException("Iterator out of bounds");
+        }
+        if (index == pointCount) {
+          return SEG_CLOSE;
+        }
+        coords[0] = coordinates[index * 2];
+        coords[1] = coordinates[index * 2 + 1];
+        if (at != null) {
+          at.transform(coords, 0, coords, 0, 1);
+        }
+        return index == 0 ? SEG_MOVETO : SEG_LINETO;
+      }
+
+      @Override
+      public int currentSegment(double[] coords) {
+        if (isDone()) {
+          throw new NoSuchElementException("Iterator out of bounds");
+        }
+        if (index == pointCount) {
+          return SEG_CLOSE;
+        }
+        coords[0] = coordinates[index * 2];
+        coords[1] = coordinates[index * 2 + 1];
+        if (at != null) {
+          at.transform(coords, 0, coords, 0, 1);
+        }
+        return index == 0 ? SEG_MOVETO : SEG_LINETO;
+      }
+    };
+  }
+
+  /**
+   * Creates the outline of this shape in device space, with all points removed that don't change the drawing.
+   *
+   * Each run of consecutive points within the same pixel is reduced to its first and last point and to the points with
+   * the minimum and maximum coordinates, in their original order. So a drawing of the result covers the same pixels as
+   * a drawing of all points, while a shape with much more points than pixels is reduced to a few points per pixel. As
+   * soon as the points are farther apart than a pixel (for example when zooming in), all points are kept.
+   *
+   * @param transform the transformation to device space, in which one unit is one pixel
+   * @return the reduced outline in device space
+   */
+  public Path2D createDecimatedPath(AffineTransform transform) {
+    Path2D.Float path = new Path2D.Float(Path2D.WIND_NON_ZERO, Math.min(pointCount + 1, 4096));
+    if (pointCount == 0) {
+      return path;
+    }
+    float[] device = new float[pointCount * 2];
+    transform.transform(coordinates, 0, device, 0, pointCount);
+
+    int[] run = new int[6];
+    int runStart = 0;
+    int minX = 0;
+    int maxX = 0;
+    int minY = 0;
+    int maxY = 0;
+    int pixelX = (int) Math.floor(device[0]);
+    int pixelY = (int) Math.floor(device[1]);
+    for (int i = 1; i <= pointCount; i++) {
+      if (i < pointCount) {
+        float x = device[i * 2];
+        float y = device[i * 2 + 1];
+        if ((int) Math.floor(x) == pixelX && (int) Math.floor(y) == pixelY) {
+          // Still in the same pixel
+          if (x < device[minX * 2]) {
+            minX = i;
+          } else if (x > device[maxX * 2]) {
+            maxX = i;
+          }
+          if (y < device[minY * 2 + 1]) {
+            minY = i;
+          } else if (y > device[maxY * 2 + 1]) {
+            maxY = i;
+          }
+          continue;
+        }
+        pixelX = (int) Math.floor(x);
+        pixelY = (int) Math.floor(y);
+      }
+
+      // Add the extremes of the finished run in their order
+      run[0] = runStart;
+      run[1] = minX;
+      run[2] = maxX;
+      run[3] = minY;
+      run[4] = maxY;
+      run[5] = i - 1;
+      Arrays.sort(run);
+      for (int j = 0; j < run.length; j++) {
+        if (j == 0 || run[j] != run[j - 1]) {
+          if (run[j] == 0) {
+            path.moveTo(device[0], device[1]);
+          } else {
+            path.lineTo(device[run[j] * 2], device[run[j] * 2 + 1]);
+          }
+        }
+      }
+      runStart = minX = maxX = minY = maxY = i;
+    }
+    if (closed) {
+      path.closePath();
+    }
+    return path;
+  }
+
+  /**
+   * @see Shape#getPathIterator(AffineTransform, double)
+   */
+  @Override
+  public PathIterator getPathIterator(AffineTransform at, double flatness) {
+    // Consists of lines only
+    return getPathIterator(at);
+  }
+
+}
@@ -2,6 +2,12 @@ package de.starrunner.sweethome3d;
 
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.text.Format;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -22,6 +28,10 @@ import de.starrunner.util.strings.Mnemonics;
 
 /**
  * Lets a user edit the points of a room or polyline.
+ * 
+ * Several points may be selected in the list or in the preview, to move, rotate, scale, align or remove them at once.
+ * Shapes with many redundant points (for example traced from a scan) may be simplified within a tolerance. The area,
+ * perimeter and centroid of the shape are updated with every change.
  *
  * Copyright (c) 2010 by Tobias Liefke
  *
@@ -41,6 +51,15 @@ public class PointsView extends ImmediateEditDialogView {
 
   private LineTab incomingLineTab;
   private LineTab outgoingLineTab;
+  private JPanel selectionTab;
+  private JPanel simplifyTab;
+  private final List<JRadioButton> simplifierButtons = new ArrayList<JRadioButton>();
+  private NullableSpinnerLengthModel toleranceModel;
+  private JButton simplifyButton;
+  /** Indicates that the points changed since the simplification was calculated. */
+  private boolean simplificationOutdated;
+  private PointsPreview preview;
+  private JLabel measuresLabel;
 
   /**
    * Creates a new instance of PointsView.
@@ -66,13 +85,41 @@ public class PointsView extends ImmediateEditDialogView {
         GridBagConstraints.NONE, new Insets(0, 0, 5, 0), 0, 0));
 
     pointsModel = new PointsModel();
+    pointsModel.addListDataListener(new ListDataListener() {
+      @Override
+      public void intervalAdded(ListDataEvent e) {
+        // Already written to the target, but the intersections and the simplification are found lazily
+        simplificationOutdated = true;
+        applyLazy();
+        updateMeasures();
+      }
+
+      @Override
+      public void intervalRemoved(ListDataEvent e) {
+        // Already written to the target, but the intersections and the simplification are found lazily
+        simplificationOutdated = true;
+        applyLazy();
+        updateMeasures();
+      }
+
+      @Override
+      public void contentsChanged(ListDataEvent e) {
+        simplificationOutdated = true;
+        applyLazy();
+        if (pointsModel.isModified() && !changeState.isChanging() && pointsList.getSelectedIndex() >= 0) {
+          // Changed in the preview
+          loadValues(null);
+        }
+        updateMeasures();
+      }
+    });
     pointsList = new JList(pointsModel);
     pointsList.setToolTipText(Msg.msg("PointsView.pointsListTooltip"));
     pointsList.setFixedCellWidth(100);
-    pointsList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+    pointsList.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
     setInitialFocusedComponent(pointsList);
 
-    // Enable moving of points in the list
+    // Enable moving of points in the list (with the alt key, as dragging alone selects several points)
     MouseInputAdapter listMouseHandler = new MouseInputAdapter() {
       private int fromIndex;
 
@@ -84,7 +131,7 @@ public class PointsView extends ImmediateEditDialogView {
       @Override
       public void mouseDragged(MouseEvent e) {
         int toIndex = pointsList.locationToIndex(e.getPoint());
-        if (toIndex != fromIndex) {
+        if (e.isAltDown() && fromIndex >= 0 && toIndex >= 0 && toIndex != fromIndex) {
           pointsModel.movePoint(fromIndex, toIndex);
           fromIndex = toIndex;
         }
@@ -148,8 +195,12 @@ public class PointsView extends ImmediateEditDialogView {
       public void stateChanged(ChangeEvent e) {
         Float x = pointXModel.getLength();
         if (x != null) {
+          int[] selectedIndices = pointsList.getSelectedIndices();
+          float dx = x - pointsModel.getPoint(pointsList.getSelectedIndex())[0];
           if (moveAllBox.isSelected()) {
-            pointsModel.move(x - pointsModel.getPoint(pointsList.getSelectedIndex())[0], 0);
+            pointsModel.move(dx, 0);
+          } else if (selectedIndices.length > 1) {
+            pointsModel.transform(selectedIndices, AffineTransform.getTranslateInstance(dx, 0));
           } else {
             pointsModel.setX(pointsList.getSelectedIndex(), x);
           }
@@ -172,8 +223,12 @@ public class PointsView extends ImmediateEditDialogView {
       public void stateChanged(ChangeEvent e) {
         Float y = pointYModel.getLength();
         if (y != null) {
+          int[] selectedIndices = pointsList.getSelectedIndices();
+          float dy = y - pointsModel.getPoint(pointsList.getSelectedIndex())[1];
           if (moveAllBox.isSelected()) {
-            pointsModel.move(0, y - pointsModel.getPoint(pointsList.getSelectedIndex())[1]);
+            pointsModel.move(0, dy);
+          } else if (selectedIndices.length > 1) {
+            pointsModel.transform(selectedIndices, AffineTransform.getTranslateInstance(0, dy));
           } else {
             pointsModel.setY(pointsList.getSelectedIndex(), y);
           }
@@ -197,13 +252,19 @@ public class PointsView extends ImmediateEditDialogView {
     incomingLineTab = new LineTab(-1);
     lineTabs.addTab(Msg.msg("PointsView.incomingLineTab"), incomingLineTab);
 
-    // Button for removing a point
+    selectionTab = createSelectionTab();
+    lineTabs.addTab(Msg.msg("PointsView.selectionTab"), selectionTab);
+
+    simplifyTab = createSimplifyTab();
+    lineTabs.addTab(Msg.msg("PointsView.simplifyTab"), simplifyTab);
+
+    // Button for removing the selected points
     final JButton removeButton = Mnemonics.configure(new JButton(Msg.msg("PointsView.removeButton")));
     removeButton.addActionListener(new ActionListener() {
       @Override
       public void actionPerformed(ActionEvent e) {
         int index = pointsList.getSelectedIndex();
-        pointsModel.removePoint(index);
+        pointsModel.removePoints(pointsList.getSelectedIndices());
         pointsList.setSelectedIndex(Math.min(index, pointsModel.getSize() - 1));
       }
     });
@@ -215,16 +276,22 @@ public class PointsView extends ImmediateEditDialogView {
     add(previewLabel, new GridBagConstraints(2, 0, 1, 1, 0.0, 0.0, GridBagConstraints.LINE_START,
         GridBagConstraints.NONE, new Insets(0, 5, 5, 0), 0, 0));
 
-    final PointsPreview preview = new PointsPreview(pointsList);
+    preview = new PointsPreview(pointsList);
     preview.setMarkNextLine(true);
     add(preview, new GridBagConstraints(2, 1, 1, 3, 0.0, 0.0, GridBagConstraints.CENTER, GridBagConstraints.BOTH,
         new Insets(0, 5, 0, 0), 0, 0));
+
+    // Show the measures of the shape
+    measuresLabel = new JLabel(" ");
+    add(measuresLabel, new GridBagConstraints(0, 4, 3, 1, 0.0, 0.0, GridBagConstraints.LINE_START,
+        GridBagConstraints.NONE, new Insets(5, 0, 0, 0), 0, 0));
+
     lineTabs.addChangeListener(new ChangeListener() {
       @Override
       public void stateChanged(ChangeEvent e) {
-        boolean nextLine = lineTabs.getSelectedIndex() == 0;
-        preview.setMarkNextLine(nextLine);
-        preview.setMarkPreviousLine(!nextLine);
+        preview.setMarkNextLine(lineTabs.getSelectedIndex() == 0);
+        preview.setMarkPreviousLine(lineTabs.getSelectedIndex() == 1);
+        updateSimplification();
       }
     });
 
@@ -233,11 +300,216 @@ public class PointsView extends ImmediateEditDialogView {
       @Override
       public void valueChanged(ListSelectionEvent e) {
         if (!e.getValueIsAdjusting() && pointsModel.getTarget() != null) {
-          removeButton.setEnabled(pointsModel.getSize() > 2);
+          int selectedCount = pointsList.getSelectedIndices().length;
+          removeButton.setEnabled(selectedCount > 0 && pointsModel.getSize() - selectedCount >= 2);
+          for (Component component : selectionTab.getComponents()) {
+            component.setEnabled(selectedCount > 1);
+          }
+          loadValues(null);
+        }
+      }
+    });
+  }
+
+  /**
+   * Creates the tab with the operations for all selected points.
+   */
+  private JPanel createSelectionTab() {
+    JPanel tab = new JPanel(new GridBagLayout());
+
+    // Rotate around the center of the selected points
+    tab.add(new JLabel(Msg.msg("PointsView.rotationLabel")), new GridBagConstraints(0, 0, 1, 1, 0.0, 0.0,
+        GridBagConstraints.LINE_START, GridBagConstraints.NONE, new Insets(5, 5, 5, 5), 0, 0));
+    final NullableSpinnerNumberModel rotationModel = new NullableSpinnerNumberModel(90f, -360f, 360f, 0.5f);
+    tab.add(new NullableSpinner(rotationModel), new GridBagConstraints(1, 0, 1, 1, 1.0, 0.0,
+        GridBagConstraints.LINE_END, GridBagConstraints.HORIZONTAL, new Insets(5, 0, 5, 5), 0, 0));
+    JButton rotateButton = Mnemonics.configure(new JButton(Msg.msg("PointsView.rotateButton")));
+    rotateButton.addActionListener(new ActionListener() {
+      @Override
+      public void actionPerformed(ActionEvent e) {
+        Number angle = rotationModel.getNumber();
+        if (angle != null) {
+          int[] selectedIndices = pointsList.getSelectedIndices();
+          float[] center = pointsModel.getCenter(selectedIndices);
+          pointsModel.transform(selectedIndices,
+            AffineTransform.getRotateInstance(Math.toRadians(angle.doubleValue()), center[0], center[1]));
+          loadValues(null);
+        }
+      }
+    });
+    tab.add(rotateButton, new GridBagConstraints(2, 0, 1, 1, 0.0, 0.0, GridBagConstraints.LINE_END,
+        GridBagConstraints.HORIZONTAL, new Insets(5, 0, 5, 5), 0, 0));
+
+    // Scale around the center of the selected points
+    tab.add(new JLabel(Msg.msg("PointsView.scaleLabel")), new GridBagConstraints(0, 1, 1, 1, 0.0, 0.0,
+        GridBagConstraints.LINE_START, GridBagConstraints.NONE, new Insets(0, 5, 5, 5), 0, 0));
+    final NullableSpinnerNumberModel scaleModel = new NullableSpinnerNumberModel(100f, 1f, 10000f, 1f);
+    tab.add(new NullableSpinner(scaleModel), new GridBagConstraints(1, 1, 1, 1, 1.0, 0.0,
+        GridBagConstraints.LINE_END, GridBagConstraints.HORIZONTAL, new Insets(0, 0, 5, 5), 0, 0));
+    JButton scaleButton = Mnemonics.configure(new JButton(Msg.msg("PointsView.scaleButton")));
+    scaleButton.addActionListener(new ActionListener() {
+      @Override
+      public void actionPerformed(ActionEvent e) {
+        Number percent = scaleModel.getNumber();
+        if (percent != null) {
+          int[] selectedIndices = pointsList.getSelectedIndices();
+          float[] center = pointsModel.getCenter(selectedIndices);
+          double factor = percent.doubleValue() / 100;
+          AffineTransform transform = AffineTransform.getTranslateInstance(center[0], center[1]);
+          transform.scale(factor, factor);
+          transform.translate(-center[0], -center[1]);
+          pointsModel.transform(selectedIndices, transform);
           loadValues(null);
         }
       }
     });
+    tab.add(scaleButton, new GridBagConstraints(2, 1, 1, 1, 0.0, 0.0, GridBagConstraints.LINE_END,
+        GridBagConstraints.HORIZONTAL, new Insets(0, 0, 5, 5), 0, 0));
+
+    // Align to the coordinates of the first selected point
+    JButton alignHorizontallyButton = Mnemonics.configure(new JButton(Msg.msg("PointsView.alignHorizontallyButton")));
+    alignHorizontallyButton.addActionListener(new ActionListener() {
+      @Override
+      public void actionPerformed(ActionEvent e) {
+        float y = pointsModel.getPoint(pointsList.getSelectedIndex())[1];
+        pointsModel.transform(pointsList.getSelectedIndices(), new AffineTransform(1, 0, 0, 0, 0, y));
+        loadValues(null);
+      }
+    });
+    tab.add(alignHorizontallyButton, new GridBagConstraints(0, 2, 3, 1, 0.0, 0.0, GridBagConstraints.LINE_START,
+        GridBagConstraints.HORIZONTAL, new Insets(0, 5, 5, 5), 0, 0));
+    JButton alignVerticallyButton = Mnemonics.configure(new JButton(Msg.msg("PointsView.alignVerticallyButton")));
+    alignVerticallyButton.addActionListener(new ActionListener() {
+      @Override
+      public void actionPerformed(ActionEvent e) {
+        float x = pointsModel.getPoint(pointsList.getSelectedIndex())[0];
+        pointsModel.transform(pointsList.getSelectedIndices(), new AffineTransform(0, 0, 0, 1, x, 0));
+        loadValues(null);
+      }
+    });
+    tab.add(alignVerticallyButton, new GridBagConstraints(0, 3, 3, 1, 0.0, 1.0, GridBagConstraints.FIRST_LINE_START,
+        GridBagConstraints.HORIZONTAL, new Insets(0, 5, 5, 5), 0, 0));
+    return tab;
+  }
+
+  /**
+   * Creates the tab for simplifying the whole shape.
+   */
+  private JPanel createSimplifyTab() {
+    JPanel tab = new JPanel(new GridBagLayout());
+    ButtonGroup simplifierGroup = new ButtonGroup();
+    ActionListener updateListener = new ActionListener() {
+      @Override
+      public void actionPerformed(ActionEvent e) {
+        updateSimplification();
+      }
+    };
+    for (PolylineSimplifier simplifier : PolylineSimplifier.values()) {
+      JRadioButton simplifierButton = Mnemonics.configure(new JRadioButton(Msg.msg("PointsView."
+          + simplifier.name().toLowerCase() + "Button")));
+      simplifierButton.setSelected(simplifierButtons.isEmpty());
+      simplifierButton.addActionListener(updateListener);
+      simplifierGroup.add(simplifierButton);
+      simplifierButtons.add(simplifierButton);
+      tab.add(simplifierButton, new GridBagConstraints(0, simplifierButtons.size() - 1, 3, 1, 0.0, 0.0,
+          GridBagConstraints.LINE_START, GridBagConstraints.NONE, new Insets(5, 5, 0, 5), 0, 0));
+    }
+
+    JLabel toleranceLabel = new JLabel(Msg.msg("PointsView.toleranceLabel", preferences.getLengthUnit().getName()));
+    tab.add(toleranceLabel, new GridBagConstraints(0, 2, 1, 1, 0.0, 0.0, GridBagConstraints.LINE_START,
+        GridBagConstraints.NONE, new Insets(5, 5, 5, 5), 0, 0));
+    toleranceModel = new NullableSpinnerLengthModel(preferences, 0.1f, 1000f);
+    toleranceModel.setLength(1f);
+    toleranceModel.addChangeListener(new ChangeListener() {
+      @Override
+      public void stateChanged(ChangeEvent e) {
+        updateSimplification();
+      }
+    });
+    JSpinner toleranceSpinner = new NullableSpinner(toleranceModel);
+    tab.add(toleranceSpinner, new GridBagConstraints(1, 2, 1, 1, 1.0, 0.0, GridBagConstraints.LINE_END,
+        GridBagConstraints.HORIZONTAL, new Insets(5, 0, 5, 5), 0, 0));
+    Mnemonics.configure(toleranceLabel, toleranceSpinner);
+
+    simplifyButton = Mnemonics.configure(new JButton(Msg.msg("PointsView.simplifyButton")));
+    simplifyButton.addActionListener(new ActionListener() {
+      @Override
+      public void actionPerformed(ActionEvent e) {
+        if (simplificationOutdated) {
+          // The shown simplification belongs to the points before the last change
+          updateSimplification();
+        }
+        int[] simplifiedIndices = preview.getSimplifiedIndices();
+        if (simplifiedIndices != null && simplifiedIndices.length < pointsModel.getSize()) {
+          pointsModel.retainPoints(simplifiedIndices);
+          pointsList.setSelectedIndex(0);
+        }
+      }
+    });
+    tab.add(simplifyButton, new GridBagConstraints(2, 2, 1, 1, 0.0, 1.0, GridBagConstraints.FIRST_LINE_END,
+        GridBagConstraints.HORIZONTAL, new Insets(5, 0, 5, 5), 0, 0));
+    return tab;
+  }
+
+  /**
+   * Finds the intersections of the current shape and marks them in the preview.
+   */
+  private void updateIntersections() {
+    if (preview != null) {
+      preview.setIntersections(pointsModel.getTarget() == null ? null : pointsModel.findIntersections());
+    }
+  }
+
+  /**
+   * Calculates the simplification of the current shape and shows it in the preview, if the simplify tab is active.
+   * 
+   * Called when the simplification options change, and after the points changed with the same delay as the points are
+   * written, as the simplification of a large shape takes too long to repeat for every step of a drag.
+   */
+  private void updateSimplification() {
+    if (preview == null) {
+      // Still initializing
+      return;
+    }
+    simplificationOutdated = false;
+    Float tolerance = toleranceModel.getLength();
+    if (lineTabs.getSelectedComponent() != simplifyTab || tolerance == null || pointsModel.getTarget() == null) {
+      preview.setSimplifiedIndices(null);
+      return;
+    }
+    PolylineSimplifier simplifier = PolylineSimplifier.DOUGLAS_PEUCKER;
+    for (int i = 0; i < simplifierButtons.size(); i++) {
+      if (simplifierButtons.get(i).isSelected()) {
+        simplifier = PolylineSimplifier.values()[i];
+      }
+    }
+    int[] simplifiedIndices = pointsModel.simplify(simplifier, tolerance);
+    preview.setSimplifiedIndices(simplifiedIndices);
+    simplifyButton.setEnabled(simplifiedIndices.length < pointsModel.getSize());
+  }
+
+  /**
+   * Shows the area, perimeter and centroid of the current shape.
+   *
+   * These values are maintained by the shape itself, so this takes constant time.
+   */
+  private void updateMeasures() {
+    if (measuresLabel == null) {
+      // Still initializing
+      return;
+    }
+    PointsShape shape = pointsModel.getShape();
+    Point2D centroid = shape.getCentroid();
+    LengthUnit unit = pointsModel.getUnit();
+    if (centroid == null || unit == null) {
+      measuresLabel.setText(" ");
+    } else {
+      Format format = unit.getFormat();
+      measuresLabel.setText(Msg.msg(shape.isClosed() ? "PointsView.polygonMeasuresLabel"
+          : "PointsView.polylineMeasuresLabel", unit.getAreaFormatWithUnit().format(shape.getArea()), unit
+          .getFormatWithUnit().format(shape.getLength()), format.format(centroid.getX()), format.format(centroid
+          .getY())));
+    }
   }
 
   private void loadValues(Object source) {
@@ -272,9 +544,36 @@ public class PointsView extends ImmediateEditDialogView {
     }
   }
 
+  /**
+   * Writes the changed points to the edited object, marks the intersections of the new shape and shows its
+   * simplification.
+   */
   @Override
   protected void apply() {
-    // We do not use #applyLazy()
+    pointsModel.commit();
+    updateIntersections();
+    if (simplificationOutdated) {
+      updateSimplification();
+    }
+  }
+
+  /**
+   * Writes any changed points before the edit is posted.
+   */
+  @Override
+  protected void commit() {
+    super.commit();
+    pointsModel.commit();
+  }
+
+  /**
+   * Forgets any changed points, as the edit reverts the edited object.
+   */
+  @Override
+  protected void cancel() {
+    // Discarding the points restarts the timer through the model events, so it is stopped afterwards
+    pointsModel.discard();
+    super.cancel();
   }
 
   /**
@@ -324,12 +623,55 @@ public class PointsView extends ImmediateEditDialogView {
     edit.doAction();
     pointsModel.setUnit(lengthUnit);
     pointsModel.setTarget(edit.getTarget());
+    updateContext(edit.getTarget());
     pointsList.setSelectedIndex(0);
     lineTabs.setSelectedIndex(0);
 
     showDialog(edit);
   }
 
+  /**
+   * Shows the walls, rooms and furniture around the edited object in the preview.
+   *
+   * Only the objects visible at the selected level are used, which intersect the bounds of the edited object, extended
+   * by its size in each direction.
+   *
+   * @param target the edited object
+   */
+  private void updateContext(PointsContainer target) {
+    Rectangle2D bounds = pointsModel.getShape().getBounds2D();
+    double margin = Math.max(bounds.getWidth(), bounds.getHeight());
+    float x0 = (float) (bounds.getMinX() - margin);
+    float y0 = (float) (bounds.getMinY() - margin);
+    float x1 = (float) (bounds.getMaxX() + margin);
+    float y1 = (float) (bounds.getMaxY() + margin);
+    Object edited = target instanceof RoomPoints ? ((RoomPoints) target).getRoom() : null;
+
+    GeneralPath walls = new GeneralPath();
+    GeneralPath outlines = new GeneralPath();
+    for (Selectable item : home.getSelectableViewableItems()) {
+      if (item != edited && item.intersectsRectangle(x0, y0, x1, y1)) {
+        if (item instanceof Wall) {
+          addOutline(walls, item.getPoints());
+        } else if (item instanceof Room || item instanceof HomePieceOfFurniture) {
+          addOutline(outlines, item.getPoints());
+        }
+      }
+    }
+    preview.setContext(walls.getCurrentPoint() == null ? null : walls,
+      outlines.getCurrentPoint() == null ? null : outlines);
+  }
+
+  private static void addOutline(GeneralPath path, float[][] points) {
+    if (points.length > 1) {
+      path.moveTo(points[0][0], points[0][1]);
+      for (int i = 1; i < points.length; i++) {
+        path.lineTo(points[i][0], points[i][1]);
+      }
+      path.closePath();
+    }
+  }
+
   /**
    * Displays the line parameters between the current point and the previous/next one.
    *
@@ -0,0 +1,324 @@
+package de.starrunner.sweethome3d;
+
+import java.util.Arrays;
+
+/**
+ * Reduces the count of points of a polyline or polygon, while keeping its shape within a tolerance.
+ *
+ * Copyright (c) 2016 by Tobias Liefke
+ *
+ * @author Tobias Liefke
+ */
+public enum PolylineSimplifier {
+
+  /**
+   * The algorithm of Douglas and Peucker.
+   *
+   * Keeps the point with the greatest distance to the line between the first and the last point, if that distance
+   * exceeds the tolerance, and repeats that for both parts. The result never deviates more than the tolerance from the
+   * original shape and keeps sharp corners. The cost is O(n log n) for most shapes and O(n^2) in the worst case.
+   */
+  DOUGLAS_PEUCKER {
+    @Override
+    protected void simplify(float[][] points, boolean closed, double tolerance, boolean[] keep) {
+      int count = points.length;
+      int last = count - 1;
+      keep[0] = true;
+      if (closed) {
+        // Split the polygon at the point with the greatest distance to the first point
+        double maxDistance = -1;
+        for (int i = 1; i < count; i++) {
+          double distance = distanceSq(points[i], points[0]);
+          if (distance > maxDistance) {
+            maxDistance = distance;
+            last = i;
+          }
+        }
+      }
+      keep[last] = true;
+
+      // Use an explicit stack, as scanned shapes may contain tens of thousands of points
+      int[] stack = new int[64];
+      int size = 0;
+      stack[size++] = 0;
+      stack[size++] = last;
+      if (closed) {
+        stack[size++] = last;
+        stack[size++] = count;
+      }
+      double toleranceSq = tolerance * tolerance;
+      while (size > 0) {
+        int end = stack[--size];
+        int start = stack[--size];
+        int farthest = -1;
+        double maxDistance = toleranceSq;
+        for (int i = start + 1; i < end; i++) {
+          double distance = segmentDistanceSq(points[i], points[start], points[end % count]);
+          if (distance > maxDistance) {
+            maxDistance = distance;
+            farthest = i;
+          }
+        }
+        if (farthest >= 0) {
+          keep[farthest] = true;
+          if (size + 4 > stack.length) {
+            stack = Arrays.copyOf(stack, stack.length * 2);
+          }
+          stack[size++] = start;
+          stack[size++] = farthest;
+          stack[size++] = farthest;
+          stack[size++] = end;
+        }
+      }
+
+      if (closed && count > 3 && last != 0 && countKept(keep) < 3) {
+        // Keep the polygon from collapsing into a line
+        int farthest = -1;
+        double maxDistance = -1;
+        for (int i = 1; i < count; i++) {
+          if (i != last) {
+            double distance = segmentDistanceSq(points[i], points[0], points[last]);
+            if (distance > maxDistance) {
+              maxDistance = distance;
+              farthest = i;
+            }
+          }
+        }
+        keep[farthest] = true;
+      }
+    }
+  },
+
+  /**
+   * The algorithm of Visvalingam and Whyatt.
+   *
+   * Removes the point with the smallest triangle to its neighbors again and again, as long as that area is smaller
+   * than the square of the tolerance. The points are kept in a heap ordered by their area, so the cost is O(n log n).
+   * The result is smoother than that of {@link #DOUGLAS_PEUCKER}, but may deviate more than the tolerance.
+   */
+  VISVALINGAM_WHYATT {
+    @Override
+    protected void simplify(float[][] points, boolean closed, double tolerance, boolean[] keep) {
+      int count = points.length;
+      Arrays.fill(keep, true);
+
+      // Link the points, to find the remaining neighbors of a removed point
+      int[] previous = new int[count];
+      int[] next = new int[count];
+      for (int i = 0; i < count; i++) {
+        previous[i] = (i + count - 1) % count;
+        next[i] = (i + 1) % count;
+      }
+
+      // Build the heap of all removable points
+      AreaHeap heap = new AreaHeap(count);
+      for (int i = closed ? 0 : 1; i < (closed ? count : count - 1); i++) {
+        heap.add(i, triangleArea(points[previous[i]], points[i], points[next[i]]));
+      }
+
+      double threshold = tolerance * tolerance;
+      int remaining = count;
+      int minCount = closed ? 3 : 2;
+      while (remaining > minCount && !heap.isEmpty() && heap.getMinArea() < threshold) {
+        double area = heap.getMinArea();
+        int index = heap.removeMin();
+        keep[index] = false;
+        remaining--;
+        int before = previous[index];
+        int after = next[index];
+        next[before] = after;
+        previous[after] = before;
+
+        // The neighbors never get a smaller area than the removed point, to remove the points in a stable order
+        if (heap.contains(before)) {
+          heap.update(before, Math.max(area, triangleArea(points[previous[before]], points[before], points[after])));
+        }
+        if (heap.contains(after)) {
+          heap.update(after, Math.max(area, triangleArea(points[before], points[after], points[next[after]])));
+        }
+      }
+    }
+  };
+
+  /**
+   * Simplifies the given points.
+   *
+   * The first and last point of a polyline are always kept, a polygon keeps at least three points.
+   *
+   * @param points the points, each as array with [x, y]
+   * @param closed {@code true} for a polygon, {@code false} for a polyline
+   * @param tolerance the tolerance, in the unit of the points
+   * @return the indices of the kept points, in ascending order
+   */
+  public int[] simplify(float[][] points, boolean closed, double tolerance) {
+    int count = points.length;
+    if (count <= (closed ? 3 : 2) || tolerance <= 0) {
+      int[] indices = new int[count];
+      for (int i = 0; i < count; i++) {
+        indices[i] = i;
+      }
+      return indices;
+    }
+    boolean[] keep = new boolean[count];
+    simplify(points, closed, tolerance, keep);
+    int[] indices = new int[countKept(keep)];
+    int next = 0;
+    for (int i = 0; i < count; i++) {
+      if (keep[i]) {
+        indices[next++] = i;
+      }
+    }
+    return indices;
+  }
+
+  /**
+   * Marks the points to keep.
+   *
+   * @param points the points, at least three for a polyline and four for a polygon
+   * @param closed {@code true} for a polygon, {@code false} for a polyline
+   * @param tolerance the tolerance, greater zero
+   * @param keep the flags of the points to set
+   */
+  protected abstract void simplify(float[][] points, boolean closed, double tolerance, boolean[] keep);
+
+  private static int countKept(boolean[] keep) {
+    int count = 0;
+    for (boolean kept : keep) {
+      if (kept) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private static double distanceSq(float[] point1, float[] point2) {
+    double dx = point1[0] - point2[0];
+    double dy = point1[1] - point2[1];
+    return dx * dx + dy * dy;
+  }
+
+  /**
+   * The square of the distance of a point to a line segment.
+   */
+  private static double segmentDistanceSq(float[] point, float[] start, float[] end) {
+    double dx = end[0] - start[0];
+    double dy = end[1] - start[1];
+    double lengthSq = dx * dx + dy * dy;
+    if (lengthSq == 0) {
+      return distanceSq(point, start);
+    }
+    double t = ((point[0] - start[0]) * dx + (point[1] - start[1]) * dy) / lengthSq;
+    if (t <= 0) {
+      return distanceSq(point, start);
+    }
+    if (t >= 1) {
+      return distanceSq(point, end);
+    }
+    double px = start[0] + t * dx - point[0];
+    double py = start[1] + t * dy - point[1];
+    return px * px + py * py;
+  }
+
+  /**
+   * The area of the triangle between three points.
+   */
+  private static double triangleArea(float[] point1, float[] point2, float[] point3) {
+    return Math.abs((point2[0] - point1[0]) * (double) (point3[1] - point1[1]) - (point3[0] - point1[0])
+        * (double) (point2[1] - point1[1])) / 2;
+  }
+
+  /**
+   * A binary min heap of point indices, ordered by their area, which supports changing the area of a point.
+   */
+  private static final class AreaHeap {
+    private final int[] heap;
+    private final int[] positions;
+    private final double[] areas;
+    private int size;
+
+    AreaHeap(int capacity) {
+      this.heap = new int[capacity];
+      this.positions = new int[capacity];
+      this.areas = new double[capacity];
+      Arrays.fill(positions, -1);
+    }
+
+    boolean isEmpty() {
+      return size == 0;
+    }
+
+    boolean contains(int index) {
+      return positions[index] >= 0;
+    }
+
+    double getMinArea() {
+      return areas[heap[0]];
+    }
+
+    void add(int index, double area) {
+      areas[index] = area;
+      heap[size] = index;
+      positions[index] = size;
+      siftUp(size++);
+    }
+
+    int removeMin() {
+      int index = heap[0];
+      positions[index] = -1;
+      if (--size > 0) {
+        heap[0] = heap[size];
+        positions[heap[0]] = 0;
+        siftDown(0);
+      }
+      return index;
+    }
+
+    void update(int index, double area) {
+      double oldArea = areas[index];
+      areas[index] = area;
+      if (area < oldArea) {
+        siftUp(positions[index]);
+      } else {
+        siftDown(positions[index]);
+      }
+    }
+
+    private void siftUp(int position) {
+      int index = heap[position];
+      while (position > 0) {
+        int parent = (position - 1) / 2;
+        if (areas[heap[parent]] <= areas[index]) {
+          break;
+        }
+        move(heap[parent], position);
+        position = parent;
+      }
+      move(index, position);
+    }
+
+    private void siftDown(int position) {
+      int index = heap[position];
+      while (true) {
+        int child = position * 2 + 1;
+        if (child >= size) {
+          break;
+        }
+        if (child + 1 < size && areas[heap[child + 1]] < areas[heap[child]]) {
+          child++;
+        }
+        if (areas[heap[child]] >= areas[index]) {
+          break;
+        }
+        move(heap[child], position);
+        position = child;
+      }
+      move(index, position);
+    }
+
+    private void move(int index, int position) {
+      heap[position] = index;
+      positions[index] = position;
+    }
+  }
+
+}
@@ -28,7 +28,7 @@ import de.starrunner.util.strings.Mnemonics;
  *
  * @author Tobias Liefke
  */
-public class ResizeView extends ImmediateEditDialogView {
+public class ResizeView extends TransformView {
   private static final long serialVersionUID = -3184198019104925119L;
 
   /**
@@ -117,7 +117,6 @@ public class ResizeView extends ImmediateEditDialogView {
 
   }
 
-  private TransformEdit currentEdit;
   private Rectangle2D.Float bounds;
 
   private ChangeState changeState = new ChangeState();
@@ -319,6 +318,8 @@ public class ResizeView extends ImmediateEditDialogView {
     fixPointPanel.add(fixPointYSpinner, new GridBagConstraints(1, 1, 1, 1, 1.0, 0.0, GridBagConstraints.LINE_END,
         GridBagConstraints.NONE, new Insets(5, 0, 5, 5), 0, 0));
     Mnemonics.configure(fixPointYLabel, fixPointYSpinner);
+
+    addPreviewComponents(2);
   }
 
   /**
@@ -328,7 +329,7 @@ public class ResizeView extends ImmediateEditDialogView {
   public void displayView(View parentView) {
     // Don't apply the next UI changes
     changeState.start();
-    currentEdit = new TransformEdit(getTitle(), home);
+    TransformEdit currentEdit = startEdit();
 
     // Calculate bounds in current unit
     bounds = currentEdit.getBounds();
@@ -387,14 +388,14 @@ public class ResizeView extends ImmediateEditDialogView {
   }
 
   @Override
-  protected void apply() {
+  protected AffineTransform createTransformation() {
     // Check for correct input parameters
     Number width = widthModel.getNumber();
     Number height = heightModel.getNumber();
     Float fixPointX = fixPointXModel.getLength();
     Float fixPointY = fixPointYModel.getLength();
     if (width == null || height == null || fixPointX == null || fixPointY == null) {
-      return;
+      return null;
     }
 
     // Convert input parameters to affine transformation
@@ -402,9 +403,9 @@ public class ResizeView extends ImmediateEditDialogView {
     float resizeX = measure.getResizeFactor(bounds.width, width.floatValue());
     float resizeY = measure.getResizeFactor(bounds.height, height.floatValue());
 
-    currentEdit.transform(new AffineTransform(resizeX, 0, 0, resizeY, (1 - resizeX)
+    return new AffineTransform(resizeX, 0, 0, resizeY, (1 - resizeX)
         * preferences.getLengthUnit().unitToCentimeter(fixPointX), (1 - resizeY)
-        * preferences.getLengthUnit().unitToCentimeter(fixPointY)));
+        * preferences.getLengthUnit().unitToCentimeter(fixPointY));
   }
 
 }
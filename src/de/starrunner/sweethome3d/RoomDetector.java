@@ -0,0 +1,266 @@
+package de.starrunner.sweethome3d;
+
+import java.util.*;
+
+import com.eteks.sweethome3d.model.Wall;
+
+/**
+ * Finds the rooms enclosed by walls.
+ *
+ * The walls are treated as edges of a planar graph. Its vertices are the wall ends, which are identified by the
+ * connected walls ({@link Wall#getWallAtStart()} and {@link Wall#getWallAtEnd()}) and by their position. The minimal
+ * closed faces of the graph are found with one walk around each face, so the cost is linear in the count of walls
+ * (apart from sorting the walls at each vertex by their angle).
+ *
+ * Walls that cross each other without a common end are not split, and round walls are treated as straight walls.
+ *
+ * Copyright (c) 2016 by Tobias Liefke
+ *
+ * @author Tobias Liefke
+ */
+public class RoomDetector {
+
+  /** The maximum distance of two wall ends at the same vertex, in cm. */
+  private static final float VERTEX_TOLERANCE = 0.5f;
+
+  /** The minimum area of a room, in square centimeters. */
+  private static final float MIN_AREA = 100;
+
+  /**
+   * A vertex of the graph.
+   */
+  private static final class Vertex {
+    private final float x;
+    private final float y;
+    private final List<HalfEdge> outgoing = new ArrayList<HalfEdge>(3);
+
+    Vertex(float x, float y) {
+      this.x = x;
+      this.y = y;
+    }
+  }
+
+  /**
+   * One direction of a wall in the graph.
+   */
+  private static final class HalfEdge {
+    private final Vertex origin;
+    private final Wall wall;
+    private final double angle;
+    private HalfEdge twin;
+    private int index;
+    private boolean visited;
+
+    HalfEdge(Vertex origin, Vertex destination, Wall wall) {
+      this.origin = origin;
+      this.wall = wall;
+      this.angle = Math.atan2(destination.y - origin.y, destination.x - origin.x);
+    }
+  }
+
+  /** Sorts the half edges of a vertex counter clockwise (in a coordinate system with the y axis upwards). */
+  private static final Comparator<HalfEdge> ANGLE_ORDER = new Comparator<HalfEdge>() {
+    @Override
+    public int compare(HalfEdge edge1, HalfEdge edge2) {
+      return Double.compare(edge1.angle, edge2.angle);
+    }
+  };
+
+  private final List<HalfEdge> edges;
+
+  /**
+   * Creates the graph for the given walls.
+   *
+   * @param walls the walls that enclose the rooms
+   */
+  public RoomDetector(Collection<Wall> walls) {
+    edges = new ArrayList<HalfEdge>(walls.size() * 2);
+
+    // Identify the vertices
+    SpatialHash<Vertex> index = new SpatialHash<Vertex>(VERTEX_TOLERANCE, walls.size() * 2);
+    Map<Wall, Vertex[]> wallEnds = new IdentityHashMap<Wall, Vertex[]>(walls.size());
+    List<Vertex> vertices = new ArrayList<Vertex>();
+    for (Wall wall : walls) {
+      Vertex[] ends = new Vertex[2];
+      wallEnds.put(wall, ends);
+      ends[0] = findVertex(wall, wall.getXStart(), wall.getYStart(), wall.getWallAtStart(), wallEnds, index, vertices);
+      ends[1] = findVertex(wall, wall.getXEnd(), wall.getYEnd(), wall.getWallAtEnd(), wallEnds, index, vertices);
+      if (ends[0] != ends[1]) {
+        HalfEdge forward = new HalfEdge(ends[0], ends[1], wall);
+        HalfEdge backward = new HalfEdge(ends[1], ends[0], wall);
+        forward.twin = backward;
+        backward.twin = forward;
+        ends[0].outgoing.add(forward);
+        ends[1].outgoing.add(backward);
+        edges.add(forward);
+        edges.add(backward);
+      }
+    }
+
+    // Sort the edges around each vertex
+    for (Vertex vertex : vertices) {
+      Collections.sort(vertex.outgoing, ANGLE_ORDER);
+      for (int i = 0; i < vertex.outgoing.size(); i++) {
+        vertex.outgoing.get(i).index = i;
+      }
+    }
+  }
+
+  /**
+   * Finds the vertex of a wall end, either from the connected wall or from the position.
+   */
+  private static Vertex findVertex(Wall wall, float x, float y, Wall connectedWall, Map<Wall, Vertex[]> wallEnds,
+      SpatialHash<Vertex> index, List<Vertex> vertices) {
+    if (connectedWall != null) {
+      Vertex[] connectedEnds = wallEnds.get(connectedWall);
+      if (connectedEnds != null) {
+        if (connectedWall.getWallAtStart() == wall && connectedEnds[0] != null) {
+          return connectedEnds[0];
+        } else if (connectedWall.getWallAtEnd() == wall && connectedEnds[1] != null) {
+          return connectedEnds[1];
+        }
+      }
+    }
+    Vertex vertex = index.findNearest(x, y, VERTEX_TOLERANCE, null);
+    if (vertex == null) {
+      vertex = new Vertex(x, y);
+      index.add(x, y, vertex);
+      vertices.add(vertex);
+    }
+    return vertex;
+  }
+
+  /**
+   * Finds the minimal closed faces of the walls.
+   *
+   * @param innerSides {@code true} to follow the inner sides of the walls, {@code false} for the center lines
+   * @return the points of the found rooms
+   */
+  public List<float[][]> detectRooms(boolean innerSides) {
+    for (HalfEdge edge : edges) {
+      edge.visited = false;
+    }
+    List<float[][]> rooms = new ArrayList<float[][]>();
+    List<HalfEdge> face = new ArrayList<HalfEdge>();
+    for (HalfEdge start : edges) {
+      if (!start.visited) {
+        // Walk around the face, always taking the next wall clockwise at each vertex
+        face.clear();
+        HalfEdge edge = start;
+        do {
+          edge.visited = true;
+          face.add(edge);
+          Vertex destination = edge.twin.origin;
+          int count = destination.outgoing.size();
+          edge = destination.outgoing.get((edge.twin.index + count - 1) % count);
+        } while (edge != start);
+
+        removeDeadEnds(face);
+        // Bounded faces are counter clockwise, the outer face of each group of walls is clockwise
+        if (face.size() >= 3 && getArea(face) >= MIN_AREA) {
+          rooms.add(innerSides ? getInnerPoints(face) : getPoints(face));
+        }
+      }
+    }
+    return rooms;
+  }
+
+  /**
+   * Removes all walls that lead into the face and back again, like a wall which ends inside of a room.
+   *
+   * @param face the edges of the face
+   */
+  private static void removeDeadEnds(List<HalfEdge> face) {
+    // Use the list as stack, an edge followed by its twin is removed together with the twin
+    int size = 0;
+    for (HalfEdge edge : face) {
+      if (size > 0 && face.get(size - 1) == edge.twin) {
+        size--;
+      } else {
+        face.set(size++, edge);
+      }
+    }
+    // And check the dead ends around the start of the face
+    int first = 0;
+    while (size - first >= 2 && face.get(first) == face.get(size - 1).twin) {
+      first++;
+      size--;
+    }
+    face.subList(size, face.size()).clear();
+    face.subList(0, first).clear();
+  }
+
+  /**
+   * Calculates the signed area of a face, positive for counter clockwise faces.
+   */
+  private static double getArea(List<HalfEdge> face) {
+    double area = 0;
+    Vertex previous = face.get(face.size() - 1).origin;
+    for (HalfEdge edge : face) {
+      Vertex current = edge.origin;
+      area += (double) previous.x * current.y - (double) current.x * previous.y;
+      previous = current;
+    }
+    return area / 2;
+  }
+
+  /**
+   * Creates the points of a face along the center lines of the walls.
+   */
+  private static float[][] getPoints(List<HalfEdge> face) {
+    float[][] points = new float[face.size()][];
+    for (int i = 0; i < points.length; i++) {
+      Vertex vertex = face.get(i).origin;
+      points[i] = new float[] { vertex.x, vertex.y };
+    }
+    return points;
+  }
+
+  /**
+   * Creates the points of a face along the inner sides of the walls.
+   *
+   * Each wall is moved into the face by its half thickness, and the points are the intersections of adjacent walls.
+   */
+  private static float[][] getInnerPoints(List<HalfEdge> face) {
+    int count = face.size();
+    // The start point, direction and offset of each moved wall
+    double[] lines = new double[count * 4];
+    for (int i = 0; i < count; i++) {
+      HalfEdge edge = face.get(i);
+      Vertex start = edge.origin;
+      Vertex end = edge.twin.origin;
+      double dx = end.x - start.x;
+      double dy = end.y - start.y;
+      double length = Math.sqrt(dx * dx + dy * dy);
+      double offset = edge.wall.getThickness() / 2 / length;
+      // The face is on the left side of a counter clockwise face
+      lines[i * 4] = start.x - dy * offset;
+      lines[i * 4 + 1] = start.y + dx * offset;
+      lines[i * 4 + 2] = dx;
+      lines[i * 4 + 3] = dy;
+    }
+
+    float[][] points = new float[count][];
+    for (int i = 0; i < count; i++) {
+      int previous = (i + count - 1) % count;
+      double x1 = lines[previous * 4];
+      double y1 = lines[previous * 4 + 1];
+      double dx1 = lines[previous * 4 + 2];
+      double dy1 = lines[previous * 4 + 3];
+      double x2 = lines[i * 4];
+      double y2 = lines[i * 4 + 1];
+      double dx2 = lines[i * 4 + 2];
+      double dy2 = lines[i * 4 + 3];
+      double cross = dx1 * dy2 - dy1 * dx2;
+      if (Math.abs(cross) < 1e-9 * Math.sqrt((dx1 * dx1 + dy1 * dy1) * (dx2 * dx2 + dy2 * dy2))) {
+        // Parallel walls - use the start of the moved wall
+        points[i] = new float[] { (float) x2, (float) y2 };
+      } else {
+        double t = ((x2 - x1) * dy2 - (y2 - y1) * dx2) / cross;
+        points[i] = new float[] { (float) (x1 + t * dx1), (float) (y1 + t * dy1) };
+      }
+    }
+    return points;
+  }
+
+}
@@ -28,10 +28,9 @@ import de.starrunner.util.strings.Mnemonics;
  * @author Tobias Liefke
  * @author Igor A. Perminov
  */
-public class RotateView extends ImmediateEditDialogView {
+public class RotateView extends TransformView {
   private static final long serialVersionUID = 6279629119148423282L;
 
-  private TransformEdit currentEdit;
   private Rectangle2D.Float bounds;
 
   private NullableSpinnerNumberModel angleModel;
@@ -80,6 +79,8 @@ public class RotateView extends ImmediateEditDialogView {
     adjustTextButton.addActionListener(createLazyActionListener());
     add(adjustTextButton, new GridBagConstraints(0, 2, 2, 1, 0, 0, GridBagConstraints.LINE_START,
         GridBagConstraints.NONE, new Insets(0, 20, 0, 0), 0, 0));
+
+    addPreviewComponents(3);
   }
 
   /**
@@ -87,21 +88,30 @@ public class RotateView extends ImmediateEditDialogView {
    */
   @Override
   public void displayView(View parentView) {
-    currentEdit = new TransformEdit(getTitle(), home);
+    TransformEdit currentEdit = startEdit();
     bounds = currentEdit.getBounds();
 
     showDialog(currentEdit);
   }
 
   @Override
-  protected void apply() {
+  protected AffineTransform createTransformation() {
     Number angle = angleModel.getNumber();
-    if (angle != null) {
-      boolean rotateText = rotateTextButton.isSelected();
-      currentEdit.transform(
-        AffineTransform.getRotateInstance(Math.toRadians(angle.floatValue()), bounds.getCenterX(), bounds.getCenterY()),
-        rotateText, rotateText && adjustTextButton.isSelected());
+    if (angle == null) {
+      return null;
     }
+    return AffineTransform.getRotateInstance(Math.toRadians(angle.floatValue()), bounds.getCenterX(),
+      bounds.getCenterY());
+  }
+
+  @Override
+  protected boolean isRotateText() {
+    return rotateTextButton.isSelected();
+  }
+
+  @Override
+  protected boolean isAdjustText() {
+    return rotateTextButton.isSelected() && adjustTextButton.isSelected();
   }
 
 }
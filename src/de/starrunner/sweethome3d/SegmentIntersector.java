@@ -0,0 +1,301 @@
+package de.starrunner.sweethome3d;
+
+import java.util.*;
+
+/**
+ * Finds all points where two or more line segments meet, with a sweep line in the style of Bentley and Ottmann.
+ *
+ * A vertical line sweeps from left to right over the plan and stops at every end point and every intersection point
+ * (the events). The segments crossing the sweep line are kept sorted by their y coordinate, so only neighboring
+ * segments have to be tested for intersections. The cost is O((n + k) log n) for n segments with k intersection
+ * points, instead of O(n^2) for testing each pair of segments.
+ *
+ * Degenerated cases like vertical segments, more than two segments through one point and overlapping collinear
+ * segments are reported as well.
+ *
+ * Copyright (c) 2016 by Tobias Liefke
+ *
+ * @author Tobias Liefke
+ *
+ * @param <T> the type of the values associated with the segments
+ */
+public class SegmentIntersector<T> {
+
+  /**
+   * Notified for every point where two or more segments meet.
+   *
+   * @param <T> the type of the values associated with the segments
+   */
+  public interface Listener<T> {
+
+    /**
+     * Called for every point where two or more segments meet, in the order of their x coordinates.
+     *
+     * The lists are only valid during the call.
+     *
+     * @param x the x coordinate of the point
+     * @param y the y coordinate of the point
+     * @param endSegments the values of the segments that start or end at the point
+     * @param innerSegments the values of the segments that contain the point between their end points
+     */
+    void intersection(double x, double y, List<T> endSegments, List<T> innerSegments);
+
+  }
+
+  /** The maximum distance of two points that are treated as equal. */
+  private static final double EPSILON = 1e-6;
+
+  /**
+   * A segment with its left end point (the lower one for vertical segments) as start.
+   */
+  private static final class Segment<T> {
+    private final int id;
+    private final double x1;
+    private final double y1;
+    private final double x2;
+    private final double y2;
+    private final double slope;
+    private final T value;
+
+    Segment(int id, double x1, double y1, double x2, double y2, T value) {
+      this.id = id;
+      this.x1 = x1;
+      this.y1 = y1;
+      this.x2 = x2;
+      this.y2 = y2;
+      this.slope = isVertical() ? Double.POSITIVE_INFINITY : (y2 - y1) / (x2 - x1);
+      this.value = value;
+    }
+
+    boolean isVertical() {
+      return x2 - x1 <= EPSILON;
+    }
+
+    /**
+     * The y coordinate of this segment at the given event point.
+     *
+     * Vertical segments are treated as if they would contain the event point, as long as it is within the segment.
+     */
+    double getY(double eventX, double eventY) {
+      if (slope == Double.POSITIVE_INFINITY) {
+        return Math.max(y1, Math.min(y2, eventY));
+      }
+      return y1 + (eventX - x1) * slope;
+    }
+  }
+
+  /**
+   * A stop of the sweep line.
+   */
+  private static final class Event<T> {
+    private final double x;
+    private final double y;
+    private final List<Segment<T>> startingSegments = new ArrayList<Segment<T>>(2);
+
+    Event(double x, double y) {
+      this.x = x;
+      this.y = y;
+    }
+  }
+
+  /** The order of the events: from left to right and from bottom to top. */
+  private static final Comparator<Event<?>> EVENT_ORDER = new Comparator<Event<?>>() {
+    @Override
+    public int compare(Event<?> event1, Event<?> event2) {
+      return compareCoordinates(event1.x, event1.y, event2.x, event2.y);
+    }
+  };
+
+  private final List<Segment<T>> segments = new ArrayList<Segment<T>>();
+
+  /** The current position of the sweep line, used by the status order. */
+  private double sweepX;
+  private double sweepY;
+
+  /** The order of the segments on the sweep line: from bottom to top, right of the current event. */
+  private final Comparator<Segment<T>> statusOrder = new Comparator<Segment<T>>() {
+    @Override
+    public int compare(Segment<T> segment1, Segment<T> segment2) {
+      if (segment1 == segment2) {
+        return 0;
+      }
+      double y1 = segment1.getY(sweepX, sweepY);
+      double y2 = segment2.getY(sweepX, sweepY);
+      if (Math.abs(y1 - y2) > EPSILON) {
+        return y1 < y2 ? -1 : 1;
+      }
+      // The probe for a search is below all segments with the same y coordinate
+      if (segment1.id < 0) {
+        return -1;
+      }
+      if (segment2.id < 0) {
+        return 1;
+      }
+      // The segments meet at the event point - the steeper one is above right of it
+      int result = Double.compare(segment1.slope, segment2.slope);
+      return result != 0 ? result : segment1.id < segment2.id ? -1 : 1;
+    }
+  };
+
+  /**
+   * Adds a segment.
+   *
+   * Segments without a length are ignored.
+   *
+   * @param x1 the x coordinate of the first end point
+   * @param y1 the y coordinate of the first end point
+   * @param x2 the x coordinate of the second end point
+   * @param y2 the y coordinate of the second end point
+   * @param value the value to report for the segment, not {@code null}
+   */
+  public void add(double x1, double y1, double x2, double y2, T value) {
+    int order = compareCoordinates(x1, y1, x2, y2);
+    if (order < 0) {
+      segments.add(new Segment<T>(segments.size(), x1, y1, x2, y2, value));
+    } else if (order > 0) {
+      segments.add(new Segment<T>(segments.size(), x2, y2, x1, y1, value));
+    }
+  }
+
+  /**
+   * The count of added segments.
+   *
+   * @return the count of segments with a length
+   */
+  public int size() {
+    return segments.size();
+  }
+
+  /**
+   * Finds all points where two or more segments meet.
+   *
+   * @param listener notified for every point
+   */
+  public void findIntersections(Listener<T> listener) {
+    TreeMap<Event<T>, Event<T>> events = new TreeMap<Event<T>, Event<T>>(EVENT_ORDER);
+    for (Segment<T> segment : segments) {
+      addEvent(events, segment.x1, segment.y1).startingSegments.add(segment);
+      addEvent(events, segment.x2, segment.y2);
+    }
+
+    TreeSet<Segment<T>> status = new TreeSet<Segment<T>>(statusOrder);
+    List<T> endSegments = new ArrayList<T>();
+    List<T> innerSegments = new ArrayList<T>();
+    List<Segment<T>> continuingSegments = new ArrayList<Segment<T>>();
+    while (!events.isEmpty()) {
+      Event<T> event = events.pollFirstEntry().getValue();
+      sweepX = event.x;
+      sweepY = event.y;
+      Segment<T> probe = new Segment<T>(-1, event.x, event.y, event.x + 1, event.y, null);
+
+      // Remove all segments that contain the event point, they are next to each other on the sweep line
+      endSegments.clear();
+      innerSegments.clear();
+      continuingSegments.clear();
+      for (Iterator<Segment<T>> iterator = status.tailSet(probe, true).iterator(); iterator.hasNext();) {
+        Segment<T> segment = iterator.next();
+        if (Math.abs(segment.getY(event.x, event.y) - event.y) > EPSILON) {
+          break;
+        }
+        iterator.remove();
+        if (compareCoordinates(segment.x2, segment.y2, event.x, event.y) == 0) {
+          endSegments.add(segment.value);
+        } else {
+          innerSegments.add(segment.value);
+          continuingSegments.add(segment);
+        }
+      }
+      for (Segment<T> segment : event.startingSegments) {
+        endSegments.add(segment.value);
+      }
+      if (endSegments.size() + innerSegments.size() > 1) {
+        listener.intersection(event.x, event.y, endSegments, innerSegments);
+      }
+
+      // Insert the segments that leave the event point, in their order right of the point
+      continuingSegments.addAll(event.startingSegments);
+      if (continuingSegments.isEmpty()) {
+        Segment<T> below = status.lower(probe);
+        Segment<T> above = status.ceiling(probe);
+        if (below != null && above != null) {
+          addIntersection(events, event, below, above);
+        }
+      } else {
+        status.addAll(continuingSegments);
+        Segment<T> lowest = continuingSegments.get(0);
+        Segment<T> highest = lowest;
+        for (Segment<T> segment : continuingSegments) {
+          if (statusOrder.compare(segment, lowest) < 0) {
+            lowest = segment;
+          } else if (statusOrder.compare(segment, highest) > 0) {
+            highest = segment;
+          }
+        }
+        Segment<T> below = status.lower(lowest);
+        if (below != null) {
+          addIntersection(events, event, below, lowest);
+        }
+        Segment<T> above = status.higher(highest);
+        if (above != null) {
+          addIntersection(events, event, highest, above);
+        }
+      }
+    }
+  }
+
+  /**
+   * Finds or creates the event for the given point.
+   */
+  private static <T> Event<T> addEvent(TreeMap<Event<T>, Event<T>> events, double x, double y) {
+    Event<T> event = new Event<T>(x, y);
+    Event<T> existing = events.get(event);
+    if (existing != null) {
+      return existing;
+    }
+    events.put(event, event);
+    return event;
+  }
+
+  /**
+   * Adds the intersection point of two segments as event, if it is right of the current event.
+   */
+  private static <T> void addIntersection(TreeMap<Event<T>, Event<T>> events, Event<T> current, Segment<T> segment1,
+      Segment<T> segment2) {
+    double dx1 = segment1.x2 - segment1.x1;
+    double dy1 = segment1.y2 - segment1.y1;
+    double dx2 = segment2.x2 - segment2.x1;
+    double dy2 = segment2.y2 - segment2.y1;
+    double denominator = dx1 * dy2 - dy1 * dx2;
+    if (Math.abs(denominator) <= EPSILON * EPSILON) {
+      // Parallel segments meet only at their end points, which are events anyway
+      return;
+    }
+    double ox = segment2.x1 - segment1.x1;
+    double oy = segment2.y1 - segment1.y1;
+    double t1 = (ox * dy2 - oy * dx2) / denominator;
+    double t2 = (ox * dy1 - oy * dx1) / denominator;
+    double tolerance1 = EPSILON / Math.sqrt(dx1 * dx1 + dy1 * dy1);
+    double tolerance2 = EPSILON / Math.sqrt(dx2 * dx2 + dy2 * dy2);
+    if (t1 >= -tolerance1 && t1 <= 1 + tolerance1 && t2 >= -tolerance2 && t2 <= 1 + tolerance2) {
+      double x = segment1.x1 + t1 * dx1;
+      double y = segment1.y1 + t1 * dy1;
+      if (compareCoordinates(x, y, current.x, current.y) > 0) {
+        addEvent(events, x, y);
+      }
+    }
+  }
+
+  /**
+   * Compares two points from left to right and from bottom to top, points within the tolerance are equal.
+   */
+  private static int compareCoordinates(double x1, double y1, double x2, double y2) {
+    if (Math.abs(x1 - x2) > EPSILON) {
+      return x1 < x2 ? -1 : 1;
+    }
+    if (Math.abs(y1 - y2) > EPSILON) {
+      return y1 < y2 ? -1 : 1;
+    }
+    return 0;
+  }
+
+}
@@ -0,0 +1,89 @@
+package de.starrunner.sweethome3d;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.eteks.sweethome3d.model.Home;
+import com.eteks.sweethome3d.model.SelectionEvent;
+import com.eteks.sweethome3d.model.SelectionListener;
+
+/**
+ * Analyzes the selection of a home once per change and notifies all interested actions.
+ *
+ * Only one selection listener is registered for all actions, so the cost of a selection change is independent of the
+ * count of actions.
+ *
+ * Copyright (c) 2016 by Tobias Liefke
+ *
+ * @author Tobias Liefke
+ */
+public class SelectionAnalyzer implements SelectionListener {
+
+  /**
+   * Notified with the summary of the current selection.
+   */
+  public interface Listener {
+
+    /**
+     * Called when the selection has changed.
+     *
+     * @param summary the summary of the new selection
+     */
+    void selectionChanged(SelectionSummary summary);
+
+  }
+
+  private final Home home;
+  private final List<Listener> listeners = new ArrayList<Listener>();
+  private SelectionSummary summary;
+
+  /**
+   * Creates a new instance of SelectionAnalyzer and registers it at the given home.
+   *
+   * @param home the home with the selection
+   */
+  public SelectionAnalyzer(Home home) {
+    this.home = home;
+    this.summary = SelectionSummary.of(home.getSelectedItems());
+    home.addSelectionListener(this);
+  }
+
+  /**
+   * Adds a listener and notifies it immediately with the current selection.
+   *
+   * @param listener the listener to add
+   */
+  public void addListener(Listener listener) {
+    listeners.add(listener);
+    listener.selectionChanged(summary);
+  }
+
+  /**
+   * The summary of the current selection.
+   *
+   * @return the summary
+   */
+  public SelectionSummary getSummary() {
+    return summary;
+  }
+
+  /**
+   * @see SelectionListener#selectionChanged(SelectionEvent)
+   */
+  @Override
+  public void selectionChanged(SelectionEvent selectionEvent) {
+    summary = SelectionSummary.of(selectionEvent.getSelectedItems());
+    for (Listener listener : listeners) {
+      listener.selectionChanged(summary);
+    }
+  }
+
+  /**
+   * Unregisters this analyzer from the home.
+   */
+  public void dispose() {
+    home.removeSelectionListener(this);
+    listeners.clear();
+  }
+
+}
@@ -0,0 +1,133 @@
+package de.starrunner.sweethome3d;
+
+import java.util.Collection;
+
+import com.eteks.sweethome3d.model.*;
+
+/**
+ * The count of selected objects per type.
+ *
+ * Copyright (c) 2016 by Tobias Liefke
+ *
+ * @author Tobias Liefke
+ */
+public final class SelectionSummary {
+
+  /** The summary of an empty selection. */
+  public static final SelectionSummary EMPTY = new SelectionSummary();
+
+  private int size;
+  private int walls;
+  private int rooms;
+  private int polylines;
+  private int dimensionLines;
+  private int labels;
+  private int furniture;
+
+  private SelectionSummary() {
+    // Created by the factory method
+  }
+
+  /**
+   * Counts the objects of the given selection in one pass.
+   *
+   * @param selectedItems the current selection
+   * @return the summary of the selection
+   */
+  public static SelectionSummary of(Collection<?> selectedItems) {
+    if (selectedItems.isEmpty()) {
+      return EMPTY;
+    }
+    SelectionSummary summary = new SelectionSummary();
+    summary.size = selectedItems.size();
+    for (Object item : selectedItems) {
+      if (item instanceof Wall) {
+        summary.walls++;
+      } else if (item instanceof Room) {
+        summary.rooms++;
+      } else if (item instanceof Polyline) {
+        summary.polylines++;
+      } else if (item instanceof DimensionLine) {
+        summary.dimensionLines++;
+      } else if (item instanceof Label) {
+        summary.labels++;
+      } else if (item instanceof PieceOfFurniture) {
+        summary.furniture++;
+      }
+    }
+    return summary;
+  }
+
+  /**
+   * Indicates that nothing is selected.
+   *
+   * @return {@code true} if the selection is empty
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * The count of all selected objects.
+   *
+   * @return the size of the selection
+   */
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * The count of selected walls.
+   *
+   * @return the count of walls
+   */
+  public int getWalls() {
+    return walls;
+  }
+
+  /**
+   * The count of selected rooms.
+   *
+   * @return the count of rooms
+   */
+  public int getRooms() {
+    return rooms;
+  }
+
+  /**
+   * The count of selected polylines.
+   *
+   * @return the count of polylines
+   */
+  public int getPolylines() {
+    return polylines;
+  }
+
+  /**
+   * The count of selected dimension lines.
+   *
+   * @return the count of dimension lines
+   */
+  public int getDimensionLines() {
+    return dimensionLines;
+  }
+
+  /**
+   * The count of selected labels.
+   *
+   * @return the count of labels
+   */
+  public int getLabels() {
+    return labels;
+  }
+
+  /**
+   * The count of selected pieces of furniture.
+   *
+   * @return the count of furniture
+   */
+  public int getFurniture() {
+    return furniture;
+  }
+
+}
@@ -0,0 +1,75 @@
+package de.starrunner.sweethome3d;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds the points where the lines of a polygon or polyline cross or touch each other.
+ *
+ * All lines are passed to a {@link SegmentIntersector}, so the cost is O((n + k) log n) for n points with k
+ * intersections. Adjacent lines meet at their common point, which is no intersection. Points without distance to their
+ * predecessor are skipped for that test, so duplicate points are no intersection either.
+ *
+ * Copyright (c) 2016 by Tobias Liefke
+ *
+ * @author Tobias Liefke
+ */
+public final class SelfIntersectionDetector {
+
+  private SelfIntersectionDetector() {
+    // Static helper
+  }
+
+  /**
+   * Finds all points where lines of the given shape cross or touch.
+   *
+   * @param points the points of the shape, each as array with [x, y]
+   * @param closed {@code true} for a polygon, {@code false} for a polyline
+   * @return the intersection points, each as array with [x, y], in the order of their x coordinate
+   */
+  public static List<float[]> findIntersections(float[][] points, boolean closed) {
+    final List<float[]> intersections = new ArrayList<float[]>();
+    int count = points.length;
+    int lineCount = closed ? count : count - 1;
+    if (lineCount < 2) {
+      return intersections;
+    }
+
+    // Remember the previous line with a length for each line, to know which lines are adjacent
+    final int[] previousLines = new int[lineCount];
+    SegmentIntersector<Integer> intersector = new SegmentIntersector<Integer>();
+    int firstLine = -1;
+    int previousLine = -1;
+    for (int i = 0; i < lineCount; i++) {
+      float[] start = points[i];
+      float[] end = points[(i + 1) % count];
+      int size = intersector.size();
+      intersector.add(start[0], start[1], end[0], end[1], i);
+      if (intersector.size() > size) {
+        if (firstLine < 0) {
+          firstLine = i;
+        }
+        previousLines[i] = previousLine;
+        previousLine = i;
+      }
+    }
+    if (closed && firstLine >= 0 && previousLine != firstLine) {
+      previousLines[firstLine] = previousLine;
+    }
+
+    intersector.findIntersections(new SegmentIntersector.Listener<Integer>() {
+      @Override
+      public void intersection(double x, double y, List<Integer> endSegments, List<Integer> innerSegments) {
+        if (!innerSegments.isEmpty() || endSegments.size() > 2 || !isAdjacent(endSegments.get(0), endSegments.get(1))) {
+          intersections.add(new float[] { (float) x, (float) y });
+        }
+      }
+
+      private boolean isAdjacent(int line1, int line2) {
+        return previousLines[line1] == line2 || previousLines[line2] == line1;
+      }
+    });
+    return intersections;
+  }
+
+}
@@ -0,0 +1,260 @@
+package de.starrunner.sweethome3d;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds values by their position in the plan in constant time.
+ *
+ * The plan is divided into square cells, and each value is saved in the cell of its position. A search for a
+ * position has to check only the cells that intersect with the search distance, so the search distance should not be
+ * greater than the cell size.
+ * 
+ * Lines may be saved in every cell they cross, to find all lines near a position with
+ * {@link #findInCells(float, float, float, Collection)}.
+ *
+ * Copyright (c) 2016 by Tobias Liefke
+ *
+ * @author Tobias Liefke
+ *
+ * @param <T> the type of the values
+ */
+public class SpatialHash<T> {
+
+  /**
+   * Decides which values are accepted during a search.
+   *
+   * @param <T> the type of the values
+   */
+  public interface Filter<T> {
+
+    /**
+     * Indicates that the given value is accepted.
+     *
+     * @param value the value found at a matching position
+     * @return {@code true} if the value may be returned
+     */
+    boolean accept(T value);
+
+  }
+
+  /**
+   * One value in a cell, linked to the next value of the same cell.
+   */
+  private static final class Entry<T> {
+    private final float x;
+    private final float y;
+    private final T value;
+    private Entry<T> next;
+
+    Entry(float x, float y, T value, Entry<T> next) {
+      this.x = x;
+      this.y = y;
+      this.value = value;
+      this.next = next;
+    }
+  }
+
+  /** The minimum cell size, to keep the cell indices in range for exact searches. */
+  private static final float MIN_CELL_SIZE = 0.01f;
+
+  private final float cellSize;
+  private final Map<Long, Entry<T>> cells;
+
+  /**
+   * Creates a new instance of SpatialHash.
+   *
+   * @param cellSize the size of the cells, should be the maximum search distance
+   * @param expectedSize the expected count of values
+   */
+  public SpatialHash(float cellSize, int expectedSize) {
+    this.cellSize = Math.max(cellSize, MIN_CELL_SIZE);
+    this.cells = new HashMap<Long, Entry<T>>(Math.max(16, expectedSize * 4 / 3));
+  }
+
+  /**
+   * Adds a value at the given position.
+   *
+   * @param x the x coordinate of the value
+   * @param y the y coordinate of the value
+   * @param value the value
+   */
+  public void add(float x, float y, T value) {
+    Long key = key(cell(x), cell(y));
+    cells.put(key, new Entry<T>(x, y, value, cells.get(key)));
+  }
+
+  /**
+   * Removes a value from the given position.
+   *
+   * @param x the x coordinate used when the value was added
+   * @param y the y coordinate used when the value was added
+   * @param value the value
+   * @return {@code true} if the value was found
+   */
+  public boolean remove(float x, float y, T value) {
+    return remove(key(cell(x), cell(y)), value);
+  }
+
+  /**
+   * Removes a value from the cell with the given key.
+   */
+  private boolean remove(Long key, T value) {
+    Entry<T> previous = null;
+    for (Entry<T> entry = cells.get(key); entry != null; entry = entry.next) {
+      if (entry.value == value) {
+        if (previous != null) {
+          previous.next = entry.next;
+        } else if (entry.next != null) {
+          cells.put(key, entry.next);
+        } else {
+          cells.remove(key);
+        }
+        return true;
+      }
+      previous = entry;
+    }
+    return false;
+  }
+
+  /**
+   * Adds a value to all cells crossed by the given line.
+   *
+   * @param x1 the x coordinate of the start of the line
+   * @param y1 the y coordinate of the start of the line
+   * @param x2 the x coordinate of the end of the line
+   * @param y2 the y coordinate of the end of the line
+   * @param value the value
+   */
+  public void addLine(float x1, float y1, float x2, float y2, T value) {
+    for (Long key : getLineCells(x1, y1, x2, y2)) {
+      cells.put(key, new Entry<T>(x1, y1, value, cells.get(key)));
+    }
+  }
+
+  /**
+   * Removes a value from all cells crossed by the given line.
+   *
+   * @param x1 the x coordinate of the start of the line, as used when the value was added
+   * @param y1 the y coordinate of the start of the line, as used when the value was added
+   * @param x2 the x coordinate of the end of the line, as used when the value was added
+   * @param y2 the y coordinate of the end of the line, as used when the value was added
+   * @param value the value
+   */
+  public void removeLine(float x1, float y1, float x2, float y2, T value) {
+    for (Long key : getLineCells(x1, y1, x2, y2)) {
+      remove(key, value);
+    }
+  }
+
+  /**
+   * Finds the keys of all cells crossed by a line, by walking from cell to cell along the line.
+   */
+  private List<Long> getLineCells(float x1, float y1, float x2, float y2) {
+    long cellX = cell(x1);
+    long cellY = cell(y1);
+    long endCellX = cell(x2);
+    long endCellY = cell(y2);
+    List<Long> keys = new ArrayList<Long>((int) Math.min(1024, Math.abs(endCellX - cellX) + Math.abs(endCellY - cellY)
+        + 1));
+    keys.add(key(cellX, cellY));
+
+    // The parameters along the line, where it crosses the next vertical and horizontal cell border
+    double dx = x2 - x1;
+    double dy = y2 - y1;
+    int stepX = endCellX > cellX ? 1 : -1;
+    int stepY = endCellY > cellY ? 1 : -1;
+    double deltaX = dx == 0 ? Double.POSITIVE_INFINITY : cellSize / Math.abs(dx);
+    double deltaY = dy == 0 ? Double.POSITIVE_INFINITY : cellSize / Math.abs(dy);
+    double nextX = dx == 0 ? Double.POSITIVE_INFINITY : ((cellX + (stepX > 0 ? 1 : 0)) * (double) cellSize - x1) / dx;
+    double nextY = dy == 0 ? Double.POSITIVE_INFINITY : ((cellY + (stepY > 0 ? 1 : 0)) * (double) cellSize - y1) / dy;
+
+    // Limit the steps, in case of rounding errors at the borders
+    for (long steps = Math.abs(endCellX - cellX) + Math.abs(endCellY - cellY); steps > 0; steps--) {
+      if (cellX != endCellX && (nextX < nextY || cellY == endCellY)) {
+        cellX += stepX;
+        nextX += deltaX;
+      } else {
+        cellY += stepY;
+        nextY += deltaY;
+      }
+      keys.add(key(cellX, cellY));
+    }
+    return keys;
+  }
+
+  /**
+   * Collects all values from the cells next to the given position.
+   *
+   * In contrast to {@link #findNearest(float, float, float, Filter)} the values are not checked for their distance,
+   * as this is used for lines, which are saved in every cell they cross.
+   *
+   * @param x the x coordinate of the position
+   * @param y the y coordinate of the position
+   * @param maxDistance the maximum distance of the values to the position
+   * @param values the collection to add the values to
+   */
+  public void findInCells(float x, float y, float maxDistance, Collection<? super T> values) {
+    long minCellX = cell(x - maxDistance);
+    long maxCellX = cell(x + maxDistance);
+    long minCellY = cell(y - maxDistance);
+    long maxCellY = cell(y + maxDistance);
+    for (long cellX = minCellX; cellX <= maxCellX; cellX++) {
+      for (long cellY = minCellY; cellY <= maxCellY; cellY++) {
+        for (Entry<T> entry = cells.get(key(cellX, cellY)); entry != null; entry = entry.next) {
+          values.add(entry.value);
+        }
+      }
+    }
+  }
+
+  /**
+   * Finds the value with the smallest distance to the given position.
+   *
+   * @param x the x coordinate of the position
+   * @param y the y coordinate of the position
+   * @param maxDistance the maximum distance of the value to the position
+   * @param filter decides which values are accepted, {@code null} to accept all
+   * @return the nearest accepted value or {@code null} if none is found within the distance
+   */
+  public T findNearest(float x, float y, float maxDistance, Filter<? super T> filter) {
+    T nearest = null;
+    double nearestDistanceSq = (double) maxDistance * maxDistance;
+    long minCellX = cell(x - maxDistance);
+    long maxCellX = cell(x + maxDistance);
+    long minCellY = cell(y - maxDistance);
+    long maxCellY = cell(y + maxDistance);
+    for (long cellX = minCellX; cellX <= maxCellX; cellX++) {
+      for (long cellY = minCellY; cellY <= maxCellY; cellY++) {
+        for (Entry<T> entry = cells.get(key(cellX, cellY)); entry != null; entry = entry.next) {
+          double dx = entry.x - x;
+          double dy = entry.y - y;
+          double distanceSq = dx * dx + dy * dy;
+          if (distanceSq <= nearestDistanceSq && (filter == null || filter.accept(entry.value))) {
+            nearest = entry.value;
+            nearestDistanceSq = distanceSq;
+          }
+        }
+      }
+    }
+    return nearest;
+  }
+
+  /**
+   * Calculates the index of the cell for the given coordinate.
+   */
+  private long cell(float coordinate) {
+    return (long) Math.floor(coordinate / cellSize);
+  }
+
+  /**
+   * Calculates the key of the given cell.
+   */
+  private static Long key(long cellX, long cellY) {
+    return Long.valueOf((cellX << 32) ^ (cellY & 0xffffffffL));
+  }
+
+}
@@ -0,0 +1,54 @@
+package de.starrunner.sweethome3d;
+
+import com.eteks.sweethome3d.model.Home;
+import com.eteks.sweethome3d.plugin.Plugin;
+import com.eteks.sweethome3d.plugin.PluginAction;
+
+/**
+ * Splits the selected walls at every point where they cross or touch another selected wall.
+ *
+ * Copyright (c) 2016 by Tobias Liefke
+ *
+ * @author Tobias Liefke
+ */
+public class SplitWallsAction extends PluginAction implements SelectionAnalyzer.Listener {
+  private final Plugin plugin;
+
+  /**
+   * Creates a new instance of SplitWallsAction.
+   * 
+   * @param plugin the parent plugin
+   * @param selectionAnalyzer the analyzer of the selection of the home
+   */
+  public SplitWallsAction(Plugin plugin, SelectionAnalyzer selectionAnalyzer) {
+    super("de.starrunner.sweethome3d.package", "SplitWallsAction", SplitWallsAction.class.getClassLoader(), false);
+    this.plugin = plugin;
+    selectionAnalyzer.addListener(this);
+  }
+
+  /**
+   * Enables this action only if at least two walls are selected.
+   * 
+   * @see SelectionAnalyzer.Listener#selectionChanged(SelectionSummary)
+   */
+  @Override
+  public void selectionChanged(SelectionSummary summary) {
+    setEnabled(summary.getWalls() >= 2);
+  }
+
+  /**
+   * @see PluginAction#execute()
+   */
+  @Override
+  public void execute() {
+    Home home = plugin.getHome();
+    SplitWallsEdit edit = new SplitWallsEdit(home, Home.getWallsSubList(home.getSelectedItems()));
+    if (edit.getSplitWallCount() > 0) {
+      edit.doAction();
+      if (plugin.getUndoableEditSupport() != null) {
+        plugin.getUndoableEditSupport().postEdit(edit);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,360 @@
+package de.starrunner.sweethome3d;
+
+import java.util.*;
+
+import com.eteks.sweethome3d.model.Home;
+import com.eteks.sweethome3d.model.Level;
+import com.eteks.sweethome3d.model.Selectable;
+import com.eteks.sweethome3d.model.Wall;
+
+import de.starrunner.components.event.AbstractObjectEdit;
+
+/**
+ * Splits walls at every point where they cross or touch another wall.
+ *
+ * The intersections are found with a {@link SegmentIntersector} along the center lines of the walls. Each split wall
+ * is replaced by its pieces, which are joined to each other and to the walls that were joined to the original wall.
+ * Walls that are joined to a split wall only on their side (like walls that end in the middle of it) are joined to the
+ * piece with the nearest end. Round walls are not split.
+ *
+ * Copyright (c) 2016 by Tobias Liefke
+ *
+ * @author Tobias Liefke
+ */
+public class SplitWallsEdit extends AbstractObjectEdit<List<SplitWallsEdit.SplitWall>> {
+  private static final long serialVersionUID = -4829734652035839371L;
+
+  /** The minimum length of a piece, in cm. */
+  private static final float MIN_LENGTH = 0.1f;
+
+  private final Home home;
+  private final List<Selectable> oldSelection;
+  private final List<Selectable> newSelection;
+
+  /**
+   * Creates a new instance of SplitWallsEdit and calculates the pieces of the given walls.
+   *
+   * @param home the home that contains the walls
+   * @param walls the walls to split
+   */
+  public SplitWallsEdit(Home home, List<Wall> walls) {
+    super(new ArrayList<SplitWall>());
+    this.home = home;
+
+    // Find the cut points of all walls
+    final Map<Wall, List<float[]>> cuts = new IdentityHashMap<Wall, List<float[]>>();
+    SegmentIntersector<Wall> intersector = new SegmentIntersector<Wall>();
+    for (Wall wall : walls) {
+      if (wall.getArcExtent() == null) {
+        intersector.add(wall.getXStart(), wall.getYStart(), wall.getXEnd(), wall.getYEnd(), wall);
+      }
+    }
+    intersector.findIntersections(new SegmentIntersector.Listener<Wall>() {
+      @Override
+      public void intersection(double x, double y, List<Wall> endSegments, List<Wall> innerSegments) {
+        for (Wall wall : innerSegments) {
+          List<float[]> points = cuts.get(wall);
+          if (points == null) {
+            points = new ArrayList<float[]>(2);
+            cuts.put(wall, points);
+          }
+          points.add(new float[] { (float) x, (float) y });
+        }
+      }
+    });
+
+    // Create the pieces in the order of the walls
+    Map<Wall, SplitWall> splitWalls = new IdentityHashMap<Wall, SplitWall>(cuts.size());
+    for (Wall wall : walls) {
+      List<float[]> points = cuts.get(wall);
+      if (points != null) {
+        SplitWall splitWall = new SplitWall(wall, points);
+        if (splitWall.pieces.size() > 1) {
+          target.add(splitWall);
+          splitWalls.put(wall, splitWall);
+        }
+      }
+    }
+    for (SplitWall splitWall : target) {
+      splitWall.resolveNeighbors(splitWalls);
+    }
+
+    // Find the walls, which reference a split wall that doesn't reference them, as deleteWall detaches them
+    for (Wall wall : home.getWalls()) {
+      if (!splitWalls.containsKey(wall)) {
+        SplitWall splitWall = splitWalls.get(wall.getWallAtStart());
+        if (splitWall != null) {
+          splitWall.addReference(wall, true);
+        }
+        splitWall = splitWalls.get(wall.getWallAtEnd());
+        if (splitWall != null) {
+          splitWall.addReference(wall, false);
+        }
+      }
+    }
+
+    this.oldSelection = home.getSelectedItems();
+    this.newSelection = new ArrayList<Selectable>(oldSelection.size() + target.size());
+    for (Selectable item : oldSelection) {
+      SplitWall splitWall = item instanceof Wall ? splitWalls.get(item) : null;
+      if (splitWall != null) {
+        newSelection.addAll(splitWall.pieces);
+      } else {
+        newSelection.add(item);
+      }
+    }
+  }
+
+  /**
+   * The count of walls, which are split.
+   *
+   * @return the count of split walls
+   */
+  public int getSplitWallCount() {
+    return target.size();
+  }
+
+  @Override
+  public void doAction() {
+    for (SplitWall splitWall : target) {
+      home.deleteWall(splitWall.wall);
+    }
+    for (SplitWall splitWall : target) {
+      splitWall.addPieces(home);
+    }
+    home.setSelectedItems(newSelection);
+  }
+
+  @Override
+  public void undoAction() {
+    for (SplitWall splitWall : target) {
+      for (Wall piece : splitWall.pieces) {
+        home.deleteWall(piece);
+      }
+    }
+    for (SplitWall splitWall : target) {
+      splitWall.restore(home);
+    }
+    home.setSelectedItems(oldSelection);
+  }
+
+  @Override
+  public String getPresentationName() {
+    return Msg.msg("SplitWallsAction.NAME");
+  }
+
+  /**
+   * The state of one split wall.
+   */
+  public static final class SplitWall {
+    private final Wall wall;
+    private final Level level;
+    private final Wall wallAtStart;
+    private final Wall wallAtEnd;
+    private final List<Wall> pieces;
+
+    /** The walls, which reference this wall without being referenced by it, and the pieces they reference instead. */
+    private final List<Reference> references = new ArrayList<Reference>(0);
+
+    /** The pieces to join at the start and end, if the joined walls are split as well. */
+    private Wall pieceAtStart;
+    private Wall pieceAtEnd;
+
+    /** Indicates that the start of the joined walls is joined to this wall (if the joined walls are not split). */
+    private boolean startOfWallAtStart;
+    private boolean startOfWallAtEnd;
+
+    /**
+     * Creates the pieces of a wall.
+     *
+     * @param wall the wall to split
+     * @param points the cut points
+     */
+    SplitWall(Wall wall, List<float[]> points) {
+      this.wall = wall;
+      this.level = wall.getLevel();
+      this.wallAtStart = wall.getWallAtStart();
+      this.wallAtEnd = wall.getWallAtEnd();
+
+      // Sort the cut points along the wall
+      final float xStart = wall.getXStart();
+      final float yStart = wall.getYStart();
+      Collections.sort(points, new Comparator<float[]>() {
+        @Override
+        public int compare(float[] point1, float[] point2) {
+          return Double.compare(distanceSq(xStart, yStart, point1), distanceSq(xStart, yStart, point2));
+        }
+      });
+
+      float[] end = new float[] { wall.getXEnd(), wall.getYEnd() };
+      points.add(end);
+
+      float length = wall.getLength();
+      Float height = wall.getHeight();
+      Float heightAtEnd = wall.getHeightAtEnd();
+      this.pieces = new ArrayList<Wall>(points.size());
+      float[] start = new float[] { xStart, yStart };
+      float startDistance = 0;
+      for (float[] point : points) {
+        float distance = (float) Math.sqrt(distanceSq(xStart, yStart, point));
+        if (point != end && (distance - startDistance < MIN_LENGTH || length - distance < MIN_LENGTH)) {
+          // Too close to the last cut or to the end
+          continue;
+        }
+        Wall piece = wall.clone();
+        piece.setXStart(start[0]);
+        piece.setYStart(start[1]);
+        piece.setXEnd(point[0]);
+        piece.setYEnd(point[1]);
+        if (height != null && heightAtEnd != null && length > 0) {
+          // Interpolate the height of sloping walls
+          piece.setHeight(height + (heightAtEnd - height) * startDistance / length);
+          piece.setHeightAtEnd(height + (heightAtEnd - height) * distance / length);
+        }
+        pieces.add(piece);
+        start = point;
+        startDistance = distance;
+      }
+    }
+
+    private static double distanceSq(float x, float y, float[] point) {
+      double dx = point[0] - x;
+      double dy = point[1] - y;
+      return dx * dx + dy * dy;
+    }
+
+    /**
+     * Finds the pieces of the joined walls, or the ends of the joined walls that reference this wall.
+     */
+    void resolveNeighbors(Map<Wall, SplitWall> splitWalls) {
+      if (wallAtStart != null) {
+        SplitWall neighbor = splitWalls.get(wallAtStart);
+        startOfWallAtStart = wallAtStart.getWallAtStart() == wall;
+        if (neighbor != null) {
+          pieceAtStart = neighbor.getPieceJoinedTo(wall);
+        }
+      }
+      if (wallAtEnd != null) {
+        SplitWall neighbor = splitWalls.get(wallAtEnd);
+        startOfWallAtEnd = wallAtEnd.getWallAtStart() == wall;
+        if (neighbor != null) {
+          pieceAtEnd = neighbor.getPieceJoinedTo(wall);
+        }
+      }
+    }
+
+    /**
+     * Remembers a wall, which references this wall at one of its ends, if this wall doesn't reference that wall.
+     *
+     * @param referrer the wall that references this wall
+     * @param atStart {@code true} if the start of the referrer references this wall
+     */
+    void addReference(Wall referrer, boolean atStart) {
+      if (referrer != wallAtStart && referrer != wallAtEnd) {
+        // Find the piece with the end next to the end of the referrer
+        float x = atStart ? referrer.getXStart() : referrer.getXEnd();
+        float y = atStart ? referrer.getYStart() : referrer.getYEnd();
+        Wall nearestPiece = null;
+        double nearestDistance = Double.MAX_VALUE;
+        for (Wall piece : pieces) {
+          double distance = Math.min(distanceSq(x, y, new float[] { piece.getXStart(), piece.getYStart() }),
+            distanceSq(x, y, new float[] { piece.getXEnd(), piece.getYEnd() }));
+          if (distance < nearestDistance) {
+            nearestDistance = distance;
+            nearestPiece = piece;
+          }
+        }
+        references.add(new Reference(referrer, atStart, nearestPiece));
+      }
+    }
+
+    /**
+     * The first or last piece of this wall, depending on which end was joined to the given wall.
+     */
+    private Wall getPieceJoinedTo(Wall joinedWall) {
+      return wallAtStart == joinedWall ? pieces.get(0) : pieces.get(pieces.size() - 1);
+    }
+
+    /**
+     * Adds the pieces to the home and joins them.
+     */
+    void addPieces(Home home) {
+      Wall previous = null;
+      for (Wall piece : pieces) {
+        // Home.addWall moves the wall to the selected level
+        home.addWall(piece);
+        piece.setLevel(level);
+        piece.setWallAtStart(previous);
+        piece.setWallAtEnd(null);
+        if (previous != null) {
+          previous.setWallAtEnd(piece);
+        }
+        previous = piece;
+      }
+      Wall first = pieces.get(0);
+      Wall last = pieces.get(pieces.size() - 1);
+      if (wallAtStart != null) {
+        if (pieceAtStart != null) {
+          first.setWallAtStart(pieceAtStart);
+        } else {
+          first.setWallAtStart(wallAtStart);
+          join(wallAtStart, startOfWallAtStart, first);
+        }
+      }
+      if (wallAtEnd != null) {
+        if (pieceAtEnd != null) {
+          last.setWallAtEnd(pieceAtEnd);
+        } else {
+          last.setWallAtEnd(wallAtEnd);
+          join(wallAtEnd, startOfWallAtEnd, last);
+        }
+      }
+      for (Reference reference : references) {
+        join(reference.referrer, reference.atStart, reference.piece);
+      }
+    }
+
+    /**
+     * Adds the original wall to the home and joins it again.
+     */
+    void restore(Home home) {
+      home.addWall(wall);
+      wall.setLevel(level);
+      wall.setWallAtStart(wallAtStart);
+      wall.setWallAtEnd(wallAtEnd);
+      if (wallAtStart != null && pieceAtStart == null) {
+        join(wallAtStart, startOfWallAtStart, wall);
+      }
+      if (wallAtEnd != null && pieceAtEnd == null) {
+        join(wallAtEnd, startOfWallAtEnd, wall);
+      }
+      for (Reference reference : references) {
+        join(reference.referrer, reference.atStart, wall);
+      }
+    }
+
+    private static void join(Wall joinedWall, boolean atStart, Wall wall) {
+      if (atStart) {
+        joinedWall.setWallAtStart(wall);
+      } else {
+        joinedWall.setWallAtEnd(wall);
+      }
+    }
+  }
+
+  /**
+   * A reference of a wall to a split wall, which is not referenced by the split wall.
+   */
+  private static final class Reference {
+    private final Wall referrer;
+    private final boolean atStart;
+    private final Wall piece;
+
+    Reference(Wall referrer, boolean atStart, Wall piece) {
+      this.referrer = referrer;
+      this.atStart = atStart;
+      this.piece = piece;
+    }
+  }
+
+}
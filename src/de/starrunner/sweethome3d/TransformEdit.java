@@ -1,8 +1,12 @@
 package de.starrunner.sweethome3d;
 
+import java.awt.Shape;
 import java.awt.geom.*;
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.*;
+
+import javax.swing.undo.UndoableEdit;
 
 import com.eteks.sweethome3d.model.*;
 
@@ -21,14 +25,33 @@ import de.starrunner.sweethome3d.TransformEdit.ObjectState;
 public class TransformEdit extends AbstractObjectEdit<List<ObjectState<? extends Selectable>>> {
   private static final long serialVersionUID = -598934247758642476L;
 
+  private static final int PROCESSORS = Runtime.getRuntime().availableProcessors();
+
+  /** The minimum count of objects, before the geometry is calculated in parallel. */
+  private static int parallelThreshold = Integer.getInteger("de.starrunner.sweethome3d.parallelThreshold", 5000);
+
+  private static ExecutorService executor;
+
   private final Home home;
 
-  private final boolean emptySelection;
+  private boolean emptySelection;
 
   private TransformOptions transformOptions;
 
   private String presentationName;
 
+  /** The coordinates of all points captured by the states, as a packed list of x/y pairs. */
+  private float[] points;
+
+  /** The count of values calculated by all states during a transformation. */
+  private int resultsSize;
+
+  /** The bounds of all states, as found during creation. */
+  private Rectangle2D.Float bounds;
+
+  /** The outlines of all states, as found during creation (created on demand). */
+  private GeneralPath outline;
+
   /**
    * Creates a new instance of the resize edit for undo / redo.
    * 
@@ -58,30 +81,86 @@ public class TransformEdit extends AbstractObjectEdit<List<ObjectState<? extends
     }
 
     // Save the current state of the selected items
-    for (Selectable item : home.getSelectedItems()) {
+    List<Selectable> selectedItems = home.getSelectedItems();
+    PointsBuffer buffer = new PointsBuffer(selectedItems.size() * 3);
+    for (Selectable item : selectedItems) {
       if (item instanceof Wall) {
-        target.add(new WallState((Wall) item));
+        target.add(new WallState((Wall) item, buffer));
       } else if (item instanceof Room) {
-        target.add(new RoomState((Room) item));
+        target.add(new RoomState((Room) item, buffer));
       } else if (item instanceof Polyline) {
-        target.add(new PolylineState((Polyline) item));
+        target.add(new PolylineState((Polyline) item, buffer));
       } else if (item instanceof Label) {
-        target.add(new LabelState((Label) item));
+        target.add(new LabelState((Label) item, buffer));
       } else if (item instanceof DimensionLine) {
-        target.add(new DimensionState((DimensionLine) item));
+        target.add(new DimensionState((DimensionLine) item, buffer));
       } else if (item instanceof HomePieceOfFurniture) {
-        target.add(new FurnitureState((HomePieceOfFurniture) item));
+        target.add(new FurnitureState((HomePieceOfFurniture) item, buffer));
       } else if (item instanceof ObserverCamera) {
-        target.add(new CameraState((ObserverCamera) item));
+        target.add(new CameraState((ObserverCamera) item, buffer));
       } else if (item instanceof Compass) {
-        target.add(new CompassState((Compass) item));
+        target.add(new CompassState((Compass) item, buffer));
       } else if (item != null) {
         System.err.println(getClass() + " - Unknown item type: " + item.getClass());
       }
     }
+    this.points = buffer.toArray();
+    this.resultsSize = buffer.resultsSize;
+
+    // Index the joints of the selected walls, as each joint is written by only one of the connected walls
+    Map<Wall, WallState> previousWalls = new IdentityHashMap<Wall, WallState>();
+    for (ObjectState<?> state : target) {
+      if (state instanceof WallState) {
+        ((WallState) state).indexJoints(previousWalls);
+      }
+    }
+
+    // Calculate the bounds once from the saved points
+    float[] extent = new float[] { Float.MAX_VALUE, Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE };
+    for (ObjectState<?> state : target) {
+      state.addToBounds(points, extent);
+    }
+    if (extent[0] > extent[2] || extent[1] > extent[3]) {
+      this.bounds = new Rectangle2D.Float(0, 0, 0, 0);
+    } else {
+      this.bounds = new Rectangle2D.Float(extent[0], extent[1], extent[2] - extent[0], extent[3] - extent[1]);
+    }
     this.transformOptions = new TransformOptions(new AffineTransform(), false, false);
   }
 
+  /**
+   * The minimum count of selected objects, before the geometry of a transformation is calculated in parallel.
+   *
+   * @return the count of objects, defaults to the system property
+   *         {@code de.starrunner.sweethome3d.parallelThreshold} or 5000
+   */
+  public static int getParallelThreshold() {
+    return parallelThreshold;
+  }
+
+  /**
+   * Sets the minimum count of selected objects, before the geometry of a transformation is calculated in parallel.
+   *
+   * @param parallelThreshold the count of objects, {@link Integer#MAX_VALUE} to disable parallel calculation
+   */
+  public static void setParallelThreshold(int parallelThreshold) {
+    TransformEdit.parallelThreshold = parallelThreshold;
+  }
+
+  private static synchronized ExecutorService getExecutor() {
+    if (executor == null) {
+      executor = Executors.newFixedThreadPool(PROCESSORS, new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "TransformEdit");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    }
+    return executor;
+  }
+
   @Override
   public String getPresentationName() {
     return presentationName;
@@ -96,7 +175,7 @@ public class TransformEdit extends AbstractObjectEdit<List<ObjectState<? extends
   @Override
   public void undoAction() {
     for (ObjectState<? extends Selectable> state : target) {
-      state.reset();
+      state.reset(points);
     }
     if (emptySelection) {
       home.setSelectedItems(Collections.<Selectable> emptyList());
@@ -105,6 +184,99 @@ public class TransformEdit extends AbstractObjectEdit<List<ObjectState<? extends
     }
   }
 
+  /**
+   * Merges a following transformation of the same objects into this edit.
+   * 
+   * This edit keeps its saved states and the combined transformation, so that one undo restores the objects to the
+   * state before this edit.
+   * 
+   * @see UndoableEdit#addEdit(UndoableEdit)
+   */
+  @Override
+  public boolean addEdit(UndoableEdit anEdit) {
+    if (anEdit instanceof TransformEdit && ((TransformEdit) anEdit).follows(this)) {
+      TransformEdit nextEdit = (TransformEdit) anEdit;
+      transformOptions = transformOptions.concatenate(nextEdit.transformOptions);
+      mergePresentationName(nextEdit);
+      forgetSavedPoints();
+      nextEdit.die();
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Replaces a previous transformation of the same objects with this edit.
+   * 
+   * This edit takes over the saved states of the previous edit and the combined transformation, so that one undo
+   * restores the objects to the state before the previous edit.
+   * 
+   * @see UndoableEdit#replaceEdit(UndoableEdit)
+   */
+  @Override
+  public boolean replaceEdit(UndoableEdit anEdit) {
+    if (anEdit instanceof TransformEdit && follows((TransformEdit) anEdit)) {
+      TransformEdit previousEdit = (TransformEdit) anEdit;
+      target.clear();
+      target.addAll(previousEdit.target);
+      points = previousEdit.points;
+      resultsSize = previousEdit.resultsSize;
+      bounds = previousEdit.bounds;
+      outline = previousEdit.outline;
+      emptySelection = previousEdit.emptySelection;
+      transformOptions = previousEdit.transformOptions.concatenate(transformOptions);
+      mergePresentationName(previousEdit);
+      forgetSavedPoints();
+      previousEdit.die();
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Marks the points of all objects as changed, as the merged edit wrote them through the states of the other edit.
+   */
+  private void forgetSavedPoints() {
+    for (ObjectState<? extends Selectable> state : target) {
+      state.containsSavedPoints = false;
+    }
+  }
+
+  /**
+   * Checks that this edit directly transformed the result of the given edit.
+   * 
+   * Only edits with the same selection and text options are merged, as otherwise the combined transformation would
+   * not reproduce the result of both transformations. And both transformations may only move, rotate and scale
+   * uniformly: Flipped text angles and the rectangles of non-uniformly resized furniture depend on the single steps.
+   *
+   * @param previousEdit the previous edit
+   * @return {@code true} if both edits may be merged into one
+   */
+  private boolean follows(TransformEdit previousEdit) {
+    if (previousEdit == this || previousEdit.home != home || !previousEdit.canUndo() || !canUndo()
+        || previousEdit.target.size() != target.size()
+        || !previousEdit.transformOptions.hasSameTextOptions(transformOptions)
+        || !previousEdit.transformOptions.isSimilarity() || !transformOptions.isSimilarity()) {
+      return false;
+    }
+    for (int i = target.size() - 1; i >= 0; i--) {
+      if (previousEdit.target.get(i).object != target.get(i).object) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Uses a generic name, if the merged edit is of another kind than this edit.
+   */
+  private void mergePresentationName(TransformEdit otherEdit) {
+    if (presentationName == null ? otherEdit.presentationName != null
+        : !presentationName.equals(otherEdit.presentationName)) {
+      presentationName = Msg.msg("TransformEdit.mergedName");
+    }
+  }
+
   private void selectItems() {
     List<Selectable> items = new ArrayList<Selectable>(target.size());
     for (ObjectState<?> state : target) {
@@ -135,41 +307,185 @@ public class TransformEdit extends AbstractObjectEdit<List<ObjectState<? extends
   }
 
   private void transform() {
+    apply(compute(transformOptions));
+  }
+
+  /**
+   * Calculates the geometry of all associated objects for a transformation, without touching the model.
+   * 
+   * May be called from any thread, as only the values found during creation are used. The calculation stops with a
+   * {@link CancellationException}, if the current thread is interrupted.
+   *
+   * @param transformation the affine transformation
+   * @param rotateText whether rotate/flip text (labels, etc)
+   * @param adjustText whether adjust text orientation after rotation/flipping
+   * @return the calculated geometry, to use for {@link #apply(Geometry)}
+   */
+  public Geometry compute(AffineTransform transformation, boolean rotateText, boolean adjustText) {
+    return compute(new TransformOptions(new AffineTransform(transformation), rotateText, adjustText));
+  }
+
+  /**
+   * Calculates the geometry of all associated objects for the given transformation, without touching the model.
+   * 
+   * If the selection contains at least {@link #getParallelThreshold()} objects, the calculation is split into chunks
+   * which are calculated in parallel.
+   *
+   * @param options the transformation options
+   * @return the calculated geometry
+   */
+  private Geometry compute(final TransformOptions options) {
+    final float[] transformedPoints = new float[points.length];
+    final float[] results = new float[resultsSize];
+    int size = target.size();
+    if (size < parallelThreshold || PROCESSORS < 2) {
+      computeChunk(options, transformedPoints, results, 0, size);
+    } else {
+      // Use more chunks than processors, as the objects differ in their count of points
+      int chunkCount = PROCESSORS * 4;
+      List<Callable<Void>> chunks = new ArrayList<Callable<Void>>(chunkCount);
+      for (int i = 0; i < chunkCount; i++) {
+        final int from = (int) ((long) size * i / chunkCount);
+        final int to = (int) ((long) size * (i + 1) / chunkCount);
+        chunks.add(new Callable<Void>() {
+          @Override
+          public Void call() {
+            computeChunk(options, transformedPoints, results, from, to);
+            return null;
+          }
+        });
+      }
+      try {
+        for (Future<Void> chunk : getExecutor().invokeAll(chunks)) {
+          chunk.get();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new CancellationException("Interrupted while transforming");
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        throw new IllegalStateException(e.getCause());
+      }
+    }
+    return new Geometry(options, transformedPoints, results);
+  }
+
+  /**
+   * Calculates the geometry of the states in the given range.
+   */
+  private void computeChunk(TransformOptions options, float[] transformedPoints, float[] results, int from, int to) {
+    if (from >= to) {
+      return;
+    }
+    // Transform all points of the chunk at once
+    int start = target.get(from).offset;
+    int end = to < target.size() ? target.get(to).offset : points.length;
+    options.getTransformation().transform(points, start, transformedPoints, start, (end - start) / 2);
+
+    // And calculate all other values of the states
+    for (int i = from; i < to; i++) {
+      if ((i & 0x3ff) == 0 && Thread.currentThread().isInterrupted()) {
+        throw new CancellationException("Interrupted while transforming");
+      }
+      target.get(i).compute(options, points, transformedPoints, results);
+    }
+  }
+
+  /**
+   * Writes the calculated geometry to the model.
+   * 
+   * Has to be called in the event dispatch thread.
+   *
+   * @param geometry the geometry calculated by this edit
+   */
+  public void apply(Geometry geometry) {
+    this.transformOptions = geometry.options;
     for (ObjectState<?> state : target) {
-      state.transform(transformOptions);
+      state.apply(geometry.options, points, geometry.transformedPoints, geometry.results);
     }
   }
 
   /**
-   * Resolves the bounds of all associated objects in cm.
+   * Indicates that the objects contain the result of the given transformation, as it was the last one written.
    *
-   * @return the bounds of the objects, or an empty rectangle if no points were found
+   * @param transformation the affine transformation
+   * @param rotateText whether rotate/flip text (labels, etc)
+   * @param adjustText whether adjust text orientation after rotation/flipping
+   * @return {@code true} if {@link #transform(AffineTransform, boolean, boolean)} would not change anything
    */
-  public Rectangle2D.Float getBounds() {
-    float left = Float.MAX_VALUE;
-    float top = Float.MAX_VALUE;
-    float bottom = -Float.MAX_VALUE;
-    float right = -Float.MAX_VALUE;
+  public boolean isTransformed(AffineTransform transformation, boolean rotateText, boolean adjustText) {
+    return transformation.equals(transformOptions.getTransformation())
+        && transformOptions.hasSameTextOptions(new TransformOptions(transformation, rotateText, adjustText));
+  }
+
+  /**
+   * Resets all associated objects to the state found during creation, without changing the selection.
+   */
+  public void reset() {
+    this.transformOptions = new TransformOptions(new AffineTransform(), false, false);
+    for (ObjectState<? extends Selectable> state : target) {
+      state.reset(points);
+    }
+  }
+
+  /**
+   * The count of model writes that were skipped, because the model already contained the value.
+   *
+   * @return the count of skipped writes during all transformations and resets of this edit
+   */
+  public int getSkippedWrites() {
+    int skippedWrites = 0;
     for (ObjectState<?> state : target) {
-      for (float[] point : state.getPoints()) {
-        if (point[0] < left) {
-          left = point[0];
-        }
-        if (point[0] > right) {
-          right = point[0];
-        }
-        if (point[1] < top) {
-          top = point[1];
-        }
-        if (point[1] > bottom) {
-          bottom = point[1];
-        }
+      skippedWrites += state.skippedWrites;
+    }
+    return skippedWrites;
+  }
+
+  /**
+   * The count of joint writes that were skipped, because two selected walls share the joint.
+   * 
+   * Each joint of two selected walls is only written by the wall which comes later in the selection.
+   *
+   * @return the count of skipped joint writes during all transformations and resets of this edit
+   */
+  public int getDeduplicatedWrites() {
+    int deduplicatedWrites = 0;
+    for (ObjectState<?> state : target) {
+      if (state instanceof WallState) {
+        deduplicatedWrites += ((WallState) state).deduplicatedWrites;
       }
     }
-    if (left > right || top > bottom) {
-      return new Rectangle2D.Float(0, 0, 0, 0);
+    return deduplicatedWrites;
+  }
+
+  /**
+   * Resolves the bounds of all associated objects in cm, as found during the creation of this edit.
+   *
+   * @return a copy of the bounds of the objects, or an empty rectangle if no points were found
+   */
+  public Rectangle2D.Float getBounds() {
+    return new Rectangle2D.Float(bounds.x, bounds.y, bounds.width, bounds.height);
+  }
+
+  /**
+   * Resolves the outlines of all associated objects in cm, as found during the creation of this edit.
+   * 
+   * The outlines are only created once and may be transformed with the same transformations as the objects to preview
+   * a transformation without touching the model.
+   *
+   * @return the outlines of the objects (don't change, as the shape is shared)
+   */
+  public Shape getOutline() {
+    if (outline == null) {
+      GeneralPath path = new GeneralPath(GeneralPath.WIND_NON_ZERO, points.length / 2 + target.size());
+      for (ObjectState<?> state : target) {
+        state.addToOutline(points, path);
+      }
+      outline = path;
     }
-    return new Rectangle2D.Float(left, top, right - left, bottom - top);
+    return outline;
   }
 
   /** Saves the current tranformation options. */
@@ -224,6 +540,55 @@ public class TransformEdit extends AbstractObjectEdit<List<ObjectState<? extends
       return transformation;
     }
 
+    /**
+     * Indicates that the transformation mirrors the objects.
+     *
+     * @return {@code true} if the orientation of the objects is reversed
+     */
+    public boolean isMirroring() {
+      return transformation.getDeterminant() < 0;
+    }
+
+    /**
+     * Indicates that the transformation only moves, rotates and scales uniformly.
+     *
+     * Such transformations keep angles and the orientation, so two of them can be combined without changing the
+     * result.
+     *
+     * @return {@code true} if the transformation is a similarity without mirroring
+     */
+    public boolean isSimilarity() {
+      double scaleX = transformation.getScaleX();
+      double scaleY = transformation.getScaleY();
+      double shearX = transformation.getShearX();
+      double shearY = transformation.getShearY();
+      double tolerance = (Math.abs(scaleX) + Math.abs(shearY)) * 1e-9;
+      return Math.abs(scaleX - scaleY) <= tolerance && Math.abs(shearX + shearY) <= tolerance
+          && transformation.getDeterminant() > 0;
+    }
+
+    /**
+     * Combines these options with the options of a following transformation.
+     *
+     * @param next the options of the following transformation
+     * @return the options that apply both transformations at once
+     */
+    public TransformOptions concatenate(TransformOptions next) {
+      AffineTransform combined = new AffineTransform(next.transformation);
+      combined.concatenate(transformation);
+      return new TransformOptions(combined, next.rotateText, next.adjustText);
+    }
+
+    /**
+     * Indicates that the text options of both transformations are the same.
+     *
+     * @param other the other options
+     * @return {@code true} if both options rotate and adjust texts in the same way
+     */
+    public boolean hasSameTextOptions(TransformOptions other) {
+      return rotateText == other.rotateText && adjustText == other.adjustText;
+    }
+
     /**
      * Converts the given text angle to the target angle.
      *
@@ -275,72 +640,422 @@ public class TransformEdit extends AbstractObjectEdit<List<ObjectState<? extends
   }
 
   /**
-   * Represents the state of an item from the plan for undo / redo
+   * The geometry of all states, calculated for a transformation.
+   * 
+   * Contains only the values that are written to the model afterwards.
+   * 
+   * @see TransformEdit#compute(AffineTransform, boolean, boolean)
+   * @see TransformEdit#apply(Geometry)
+   */
+  public static final class Geometry {
+    private final TransformOptions options;
+    private final float[] transformedPoints;
+    private final float[] results;
+
+    /**
+     * Creates a new calculated geometry.
+     *
+     * @param options the options used for the calculation
+     * @param transformedPoints the transformed coordinates of the points buffer
+     * @param results the values calculated by the states
+     */
+    private Geometry(TransformOptions options, float[] transformedPoints, float[] results) {
+      this.options = options;
+      this.transformedPoints = transformedPoints;
+      this.results = results;
+    }
+  }
+
+  /**
+   * Collects the points of all states into one packed array of coordinates.
+   * 
+   * Additionally reserves the space for the values calculated by the states during a transformation.
+   */
+  private static final class PointsBuffer {
+    private float[] coordinates;
+    private int size;
+    private int resultsSize;
+
+    /**
+     * Creates a new buffer.
+     *
+     * @param initialCapacity the count of points expected
+     */
+    public PointsBuffer(int initialCapacity) {
+      coordinates = new float[Math.max(initialCapacity, 4) * 2];
+    }
+
+    private void ensureCapacity(int count) {
+      if (size + count * 2 > coordinates.length) {
+        coordinates = Arrays.copyOf(coordinates, Math.max(coordinates.length * 2, size + count * 2));
+      }
+    }
+
+    /**
+     * Adds a point to the buffer.
+     *
+     * @param x the x coordinate of the point
+     * @param y the y coordinate of the point
+     * @return the offset of the point in the buffer
+     */
+    public int add(float x, float y) {
+      ensureCapacity(1);
+      int offset = size;
+      coordinates[size++] = x;
+      coordinates[size++] = y;
+      return offset;
+    }
+
+    /**
+     * Adds a list of points to the buffer.
+     *
+     * @param points the points to add
+     * @return the offset of the first point in the buffer
+     */
+    public int add(float[][] points) {
+      ensureCapacity(points.length);
+      int offset = size;
+      for (float[] point : points) {
+        coordinates[size++] = point[0];
+        coordinates[size++] = point[1];
+      }
+      return offset;
+    }
+
+    /**
+     * Reserves space for values calculated by a state during a transformation.
+     *
+     * @param count the count of values
+     * @return the offset of the first value in the results
+     */
+    public int reserveResults(int count) {
+      int offset = resultsSize;
+      resultsSize += count;
+      return offset;
+    }
+
+    /**
+     * Creates the packed coordinates of all added points.
+     *
+     * @return the coordinates as x/y pairs
+     */
+    public float[] toArray() {
+      return Arrays.copyOf(coordinates, size);
+    }
+  }
+
+  /**
+   * Extends the bounds to include the given point.
+   *
+   * @param bounds the bounds as [left, top, right, bottom]
+   * @param x the x coordinate of the point
+   * @param y the y coordinate of the point
+   */
+  private static void extendBounds(float[] bounds, float x, float y) {
+    if (x < bounds[0]) {
+      bounds[0] = x;
+    }
+    if (y < bounds[1]) {
+      bounds[1] = y;
+    }
+    if (x > bounds[2]) {
+      bounds[2] = x;
+    }
+    if (y > bounds[3]) {
+      bounds[3] = y;
+    }
+  }
+
+  /**
+   * Extends the bounds to include the given points.
+   *
+   * @param bounds the bounds as [left, top, right, bottom]
+   * @param coordinates the packed coordinates
+   * @param offset the offset of the first point
+   * @param count the count of points
+   */
+  private static void extendBounds(float[] bounds, float[] coordinates, int offset, int count) {
+    for (int i = offset, end = offset + count * 2; i < end; i += 2) {
+      extendBounds(bounds, coordinates[i], coordinates[i + 1]);
+    }
+  }
+
+  /**
+   * Extends the bounds to include the four corners of a rectangle.
+   * 
+   * The opposite corners are reflected from the top right and bottom right corner through the center.
+   *
+   * @param coordinates the packed coordinates of the center, the top right and the bottom right corner
+   * @param offset the offset of the center
+   * @param bounds the bounds as [left, top, right, bottom]
+   */
+  private static void addCornersToBounds(float[] coordinates, int offset, float[] bounds) {
+    float centerX = coordinates[offset];
+    float centerY = coordinates[offset + 1];
+    for (int i = offset + 2; i < offset + 6; i += 2) {
+      float x = coordinates[i];
+      float y = coordinates[i + 1];
+      extendBounds(bounds, x, y);
+      extendBounds(bounds, 2 * centerX - x, 2 * centerY - y);
+    }
+  }
+
+  /**
+   * Adds the lines between the given points to an outline.
+   *
+   * @param outline the outline to extend
+   * @param coordinates the packed coordinates
+   * @param offset the offset of the first point
+   * @param count the count of points
+   * @param closed indicates to add a line from the last point back to the first point
+   */
+  private static void addLinesToOutline(GeneralPath outline, float[] coordinates, int offset, int count,
+      boolean closed) {
+    if (count > 0) {
+      outline.moveTo(coordinates[offset], coordinates[offset + 1]);
+      for (int i = offset + 2, end = offset + count * 2; i < end; i += 2) {
+        outline.lineTo(coordinates[i], coordinates[i + 1]);
+      }
+      if (closed) {
+        outline.closePath();
+      }
+    }
+  }
+
+  /**
+   * Adds a rectangle to an outline.
+   * 
+   * The opposite corners are reflected from the top right and bottom right corner through the center.
+   *
+   * @param outline the outline to extend
+   * @param coordinates the packed coordinates of the center, the top right and the bottom right corner
+   * @param offset the offset of the center
+   */
+  private static void addCornersToOutline(GeneralPath outline, float[] coordinates, int offset) {
+    float centerX = coordinates[offset];
+    float centerY = coordinates[offset + 1];
+    float topRightX = coordinates[offset + 2];
+    float topRightY = coordinates[offset + 3];
+    float bottomRightX = coordinates[offset + 4];
+    float bottomRightY = coordinates[offset + 5];
+    outline.moveTo(2 * centerX - bottomRightX, 2 * centerY - bottomRightY);
+    outline.lineTo(topRightX, topRightY);
+    outline.lineTo(bottomRightX, bottomRightY);
+    outline.lineTo(2 * centerX - topRightX, 2 * centerY - topRightY);
+    outline.closePath();
+  }
+
+  /**
+   * Copies packed coordinates into a new point array, as expected by the model.
+   *
+   * @param coordinates the packed coordinates
+   * @param offset the offset of the first point
+   * @param count the count of points to copy
+   * @return the points as [x, y] arrays
+   */
+  private static float[][] toPoints(float[] coordinates, int offset, int count) {
+    float[][] points = new float[count][];
+    for (int i = 0; i < count; i++) {
+      points[i] = new float[] { coordinates[offset + i * 2], coordinates[offset + i * 2 + 1] };
+    }
+    return points;
+  }
+
+  /**
+   * Represents the state of an item from the plan for undo / redo.
+   * 
+   * The coordinates of the item are saved in the points buffer of the edit, starting at {@link #offset}.
+   * Any other values calculated for a transformation are saved in the results, starting at {@link #resultsOffset}.
+   * 
+   * Properties are only written to the object, if they have changed (see {@code isChanged}), as every write
+   * notifies the listeners of the object.
    * 
    * @param <T> the type of the associated object
    */
   public abstract static class ObjectState<T extends Selectable> {
     protected final T object;
+    protected final int offset;
+    protected final int resultsOffset;
+    private int skippedWrites;
+    /**
+     * Indicates that the object contains the points found during creation, as long as nothing else was written by this
+     * state. Cleared when the edit is merged, as the other edit wrote the object through its own states.
+     */
+    private boolean containsSavedPoints = true;
 
     /**
      * Creates a new instance of ObjectState.
      *
      * @param object the associated object
+     * @param offset the offset of the first point of this object in the points buffer
+     * @param resultsOffset the offset of the first calculated value of this object in the results
      */
-    public ObjectState(T object) {
+    public ObjectState(T object, int offset, int resultsOffset) {
       this.object = object;
+      this.offset = offset;
+      this.resultsOffset = resultsOffset;
     }
 
     /**
-     * The current points of the associated object.
+     * Checks if a property has to be written, counts the skipped writes otherwise.
      *
-     * @return the points for calculating the bounds of this object
+     * @param currentValue the current value of the property
+     * @param newValue the value to write
+     * @return {@code true} if the new value differs from the current value
      */
-    public float[][] getPoints() {
-      return object.getPoints();
+    protected final boolean isChanged(float currentValue, float newValue) {
+      if (Float.floatToIntBits(currentValue) == Float.floatToIntBits(newValue)) {
+        skippedWrites++;
+        return false;
+      }
+      return true;
+    }
+
+    /**
+     * Checks if a property has to be written, counts the skipped writes otherwise.
+     *
+     * @param currentValue the current value of the property
+     * @param newValue the value to write
+     * @return {@code true} if the new value differs from the current value
+     */
+    protected final boolean isChanged(boolean currentValue, boolean newValue) {
+      if (currentValue == newValue) {
+        skippedWrites++;
+        return false;
+      }
+      return true;
+    }
+
+    /**
+     * Checks if a property has to be written, counts the skipped writes otherwise.
+     *
+     * @param currentValue the current value of the property
+     * @param newValue the value to write
+     * @return {@code true} if the new value differs from the current value
+     */
+    protected final boolean isChanged(Object currentValue, Object newValue) {
+      if (currentValue == newValue || currentValue != null && currentValue.equals(newValue)) {
+        skippedWrites++;
+        return false;
+      }
+      return true;
+    }
+
+    /**
+     * Checks if the points of the object have to be written, counts the skipped writes otherwise.
+     *
+     * The object is not asked for its points, as it returns a copy of them. Instead the new points are compared to the
+     * points found during creation, which the object contains until other points are written. Expects that the points
+     * are written, if this method returns {@code true}.
+     *
+     * @param points the points buffer with the coordinates found during creation
+     * @param coordinates the buffer with the points to write
+     * @param pointCount the count of points to compare
+     * @return {@code true} if the object may contain other points than the new points
+     */
+    protected final boolean isPointsChanged(float[] points, float[] coordinates, int pointCount) {
+      boolean saved = coordinates == points || isEqual(points, coordinates, offset, pointCount * 2);
+      if (saved && containsSavedPoints) {
+        skippedWrites++;
+        return false;
+      }
+      containsSavedPoints = saved;
+      return true;
+    }
+
+    private static boolean isEqual(float[] points, float[] coordinates, int offset, int length) {
+      for (int i = offset; i < offset + length; i++) {
+        if (Float.floatToIntBits(points[i]) != Float.floatToIntBits(coordinates[i])) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Adds the points of the associated object, as found during creation, to the bounds of the edit.
+     *
+     * @param points the points buffer with the coordinates found during creation
+     * @param bounds the bounds to extend, as [left, top, right, bottom]
+     */
+    public abstract void addToBounds(float[] points, float[] bounds);
+
+    /**
+     * Adds the outline of the associated object, as found during creation, to the outline of the edit.
+     *
+     * @param points the points buffer with the coordinates found during creation
+     * @param outline the outline to extend
+     */
+    public void addToOutline(float[] points, GeneralPath outline) {
+      // Nothing to outline for objects that are only a point in the plan
     }
 
     /**
      * Resets to the state found during creation.
+     * 
+     * @param points the points buffer with the coordinates found during creation
+     */
+    public abstract void reset(float[] points);
+
+    /**
+     * Calculates the values of the associated object for a transformation, without touching the object.
+     * 
+     * May be called from any thread, so only the values found during creation are used.
+     * 
+     * @param transformOptions the associated transformation
+     * @param points the points buffer with the coordinates found during creation
+     * @param transformedPoints the points buffer with the already transformed coordinates
+     * @param results the results to fill, starting at {@link #resultsOffset}
      */
-    public abstract void reset();
+    public void compute(TransformOptions transformOptions, float[] points, float[] transformedPoints, float[] results) {
+      // Nothing to calculate for most objects
+    }
 
     /**
-     * Applies the transformation to the associated object using the coordinates found during creation.
+     * Applies the calculated values of a transformation to the associated object.
      * 
      * @param transformOptions the associated transformation
+     * @param points the points buffer with the coordinates found during creation
+     * @param transformedPoints the points buffer with the transformed coordinates
+     * @param results the results from {@link #compute}
      */
-    public abstract void transform(TransformOptions transformOptions);
+    public abstract void apply(TransformOptions transformOptions, float[] points, float[] transformedPoints,
+        float[] results);
 
   }
 
   /**
    * Saves the state of a wall.
+   * 
+   * The start and end point are saved in the points buffer.
+   * 
+   * A joint with a connected wall is written for both walls at once. If the connected wall is selected as well, only
+   * the state of the wall that comes later in the selection writes the joint.
    */
   private static final class WallState extends ObjectState<Wall> {
-    private Point2D startPoint;
-    private Point2D endPoint;
+    private boolean writeStart = true;
+    private boolean writeEnd = true;
+    private int deduplicatedWrites;
 
-    private Integer leftSideColor;
-    private HomeTexture leftSideTexture;
-    private Baseboard leftSideBaseboard;
-    private float leftSideShininess;
+    private final Integer leftSideColor;
+    private final HomeTexture leftSideTexture;
+    private final Baseboard leftSideBaseboard;
+    private final float leftSideShininess;
 
-    private Integer rightSideColor;
-    private HomeTexture rightSideTexture;
-    private Baseboard rightSideBaseboard;
-    private float rightSideShininess;
+    private final Integer rightSideColor;
+    private final HomeTexture rightSideTexture;
+    private final Baseboard rightSideBaseboard;
+    private final float rightSideShininess;
 
     /**
      * Creates a new wall state.
      *
      * @param wall the wall
+     * @param buffer the buffer for the points of the wall
      */
-    public WallState(Wall wall) {
-      super(wall);
-      // Save the start and end point
-      startPoint = new Point2D.Float(wall.getXStart(), wall.getYStart());
-      endPoint = new Point2D.Float(wall.getXEnd(), wall.getYEnd());
+    public WallState(Wall wall, PointsBuffer buffer) {
+      super(wall, buffer.add(wall.getXStart(), wall.getYStart()), 0);
+      buffer.add(wall.getXEnd(), wall.getYEnd());
 
       // Save the styles for mirroring
       leftSideColor = wall.getLeftSideColor();
@@ -355,367 +1070,539 @@ public class TransformEdit extends AbstractObjectEdit<List<ObjectState<? extends
 
     }
 
+    /**
+     * Takes over the joints shared with any previous wall of the selection.
+     *
+     * @param previousWalls the states of the previous walls of the selection, this state is added afterwards
+     */
+    public void indexJoints(Map<Wall, WallState> previousWalls) {
+      takeOverJoint(previousWalls.get(object.getWallAtStart()));
+      takeOverJoint(previousWalls.get(object.getWallAtEnd()));
+      previousWalls.put(object, this);
+    }
+
+    /**
+     * Takes over the joint with the given previous wall, if that wall is connected to this wall as well.
+     *
+     * @param previous the state of the previous wall, {@code null} if the connected wall is not selected
+     */
+    private void takeOverJoint(WallState previous) {
+      if (previous != null && previous != this) {
+        // Both ends of the previous wall may be joined to this wall, if both form a loop
+        if (previous.object.getWallAtStart() == object) {
+          previous.writeStart = false;
+        }
+        if (previous.object.getWallAtEnd() == object) {
+          previous.writeEnd = false;
+        }
+      }
+    }
+
     @Override
-    public void reset() {
-      setStartPoint(startPoint);
-      setEndPoint(endPoint);
-      resetStyleChanges();
+    public void reset(float[] points) {
+      setStartPoint(points[offset], points[offset + 1]);
+      setEndPoint(points[offset + 2], points[offset + 3]);
+      setStyles(leftSideColor, leftSideTexture, leftSideBaseboard, leftSideShininess, rightSideColor,
+        rightSideTexture, rightSideBaseboard, rightSideShininess);
     }
 
-    private void resetStyleChanges() {
-      object.setLeftSideColor(leftSideColor);
-      object.setLeftSideTexture(leftSideTexture);
-      object.setLeftSideBaseboard(leftSideBaseboard);
-      object.setLeftSideShininess(leftSideShininess);
+    private void setStyles(Integer leftColor, HomeTexture leftTexture, Baseboard leftBaseboard, float leftShininess,
+        Integer rightColor, HomeTexture rightTexture, Baseboard rightBaseboard, float rightShininess) {
+      if (isChanged(object.getLeftSideColor(), leftColor)) {
+        object.setLeftSideColor(leftColor);
+      }
+      if (isChanged(object.getLeftSideTexture(), leftTexture)) {
+        object.setLeftSideTexture(leftTexture);
+      }
+      if (isChanged(object.getLeftSideBaseboard(), leftBaseboard)) {
+        object.setLeftSideBaseboard(leftBaseboard);
+      }
+      if (isChanged(object.getLeftSideShininess(), leftShininess)) {
+        object.setLeftSideShininess(leftShininess);
+      }
 
-      object.setRightSideColor(rightSideColor);
-      object.setRightSideTexture(rightSideTexture);
-      object.setRightSideBaseboard(rightSideBaseboard);
-      object.setRightSideShininess(rightSideShininess);
+      if (isChanged(object.getRightSideColor(), rightColor)) {
+        object.setRightSideColor(rightColor);
+      }
+      if (isChanged(object.getRightSideTexture(), rightTexture)) {
+        object.setRightSideTexture(rightTexture);
+      }
+      if (isChanged(object.getRightSideBaseboard(), rightBaseboard)) {
+        object.setRightSideBaseboard(rightBaseboard);
+      }
+      if (isChanged(object.getRightSideShininess(), rightShininess)) {
+        object.setRightSideShininess(rightShininess);
+      }
     }
 
     @Override
-    public void transform(TransformOptions transformOptions) {
-      AffineTransform transformation = transformOptions.getTransformation();
+    public void apply(TransformOptions transformOptions, float[] points, float[] transformedPoints, float[] results) {
+      setStartPoint(transformedPoints[offset], transformedPoints[offset + 1]);
+      setEndPoint(transformedPoints[offset + 2], transformedPoints[offset + 3]);
 
-      setStartPoint(transformation.transform(startPoint, null));
-      setEndPoint(transformation.transform(endPoint, null));
-
-      if (transformation.getScaleX() < 0 != transformation.getScaleY() < 0) {
+      if (transformOptions.isMirroring()) {
         // If this is a mirroring transformation exhange the left and right style
-        object.setLeftSideColor(rightSideColor);
-        object.setLeftSideTexture(rightSideTexture);
-        object.setLeftSideBaseboard(rightSideBaseboard);
-        object.setLeftSideShininess(rightSideShininess);
-        object.setRightSideColor(leftSideColor);
-        object.setRightSideTexture(leftSideTexture);
-        object.setRightSideBaseboard(leftSideBaseboard);
-        object.setRightSideShininess(leftSideShininess);
+        setStyles(rightSideColor, rightSideTexture, rightSideBaseboard, rightSideShininess, leftSideColor,
+          leftSideTexture, leftSideBaseboard, leftSideShininess);
       } else {
         // Undo a possible style exchange
-        resetStyleChanges();
-      }
-    }
-
-    private void setStartPoint(Point2D point) {
-      float x = (float) point.getX();
-      float y = (float) point.getY();
-      object.setXStart(x);
-      object.setYStart(y);
-      Wall start = object.getWallAtStart();
-      if (start != null) {
-        if (start.getWallAtStart() == object) {
-          start.setXStart(x);
-          start.setYStart(y);
-        } else if (start.getWallAtEnd() == object) {
-          start.setXEnd(x);
-          start.setYEnd(y);
-        }
+        setStyles(leftSideColor, leftSideTexture, leftSideBaseboard, leftSideShininess, rightSideColor,
+          rightSideTexture, rightSideBaseboard, rightSideShininess);
       }
     }
 
-    private void setEndPoint(Point2D point) {
-      float x = (float) point.getX();
-      float y = (float) point.getY();
-      object.setXEnd(x);
-      object.setYEnd(y);
-      Wall end = object.getWallAtEnd();
-      if (end != null) {
-        if (end.getWallAtStart() == object) {
-          end.setXStart(x);
-          end.setYStart(y);
-        } else if (end.getWallAtEnd() == object) {
-          end.setXEnd(x);
-          end.setYEnd(y);
-        }
+    private void setStartPoint(float x, float y) {
+      if (!writeStart) {
+        deduplicatedWrites++;
+        return;
+      }
+      float currentX = object.getXStart();
+      float currentY = object.getYStart();
+      setWallStart(object, x, y);
+      setJoinedPoint(object.getWallAtStart(), currentX, currentY, x, y);
+    }
+
+    private void setEndPoint(float x, float y) {
+      if (!writeEnd) {
+        deduplicatedWrites++;
+        return;
+      }
+      float currentX = object.getXEnd();
+      float currentY = object.getYEnd();
+      setWallEnd(object, x, y);
+      setJoinedPoint(object.getWallAtEnd(), currentX, currentY, x, y);
+    }
+
+    /**
+     * Moves the point of a joined wall, which is joined to the given point of this wall.
+     *
+     * @param joined the joined wall, {@code null} if none
+     * @param currentX the x coordinate of the point of this wall, before it was moved
+     * @param currentY the y coordinate of the point of this wall, before it was moved
+     * @param x the new x coordinate
+     * @param y the new y coordinate
+     */
+    private void setJoinedPoint(Wall joined, float currentX, float currentY, float x, float y) {
+      if (joined == null) {
+        return;
+      }
+      boolean atStart = joined.getWallAtStart() == object;
+      boolean atEnd = joined.getWallAtEnd() == object;
+      if (atStart && atEnd) {
+        // Both walls form a loop, so the end of the joined wall at the current point is moved
+        atStart = Point2D.distanceSq(joined.getXStart(), joined.getYStart(), currentX, currentY) <= Point2D
+            .distanceSq(joined.getXEnd(), joined.getYEnd(), currentX, currentY);
+      }
+      if (atStart) {
+        setWallStart(joined, x, y);
+      } else if (atEnd) {
+        setWallEnd(joined, x, y);
+      }
+    }
+
+    private void setWallStart(Wall wall, float x, float y) {
+      if (isChanged(wall.getXStart(), x)) {
+        wall.setXStart(x);
+      }
+      if (isChanged(wall.getYStart(), y)) {
+        wall.setYStart(y);
+      }
+    }
+
+    private void setWallEnd(Wall wall, float x, float y) {
+      if (isChanged(wall.getXEnd(), x)) {
+        wall.setXEnd(x);
       }
+      if (isChanged(wall.getYEnd(), y)) {
+        wall.setYEnd(y);
+      }
+    }
+
+    /**
+     * Uses the start and end point of the wall (not the corners).
+     */
+    @Override
+    public void addToBounds(float[] points, float[] bounds) {
+      extendBounds(bounds, points, offset, 2);
     }
 
     /**
-     * Return the start and end point of the wall (not the corners).
+     * Uses the line from the start to the end point of the wall.
      */
     @Override
-    public float[][] getPoints() {
-      return new float[][] { { object.getXStart(), object.getYStart() }, { object.getXEnd(), object.getYEnd() } };
+    public void addToOutline(float[] points, GeneralPath outline) {
+      addLinesToOutline(outline, points, offset, 2, false);
     }
 
   }
 
   /**
    * Saves the state of a room.
+   * 
+   * The points of the room are saved in the points buffer, followed by the positions of the name and the area.
    */
   private static final class RoomState extends ObjectState<Room> {
-    private final float[][] points;
-    private final Point2D.Float center;
-    private final Point2D.Float nameOffset;
+    private final int pointCount;
+    private final float nameXOffset;
+    private final float nameYOffset;
     private final float nameAngle;
-    private final Point2D.Float areaOffset;
+    private final float areaXOffset;
+    private final float areaYOffset;
     private final float areaAngle;
 
     /**
      * Creates a new room state.
      *
      * @param room the associated room
+     * @param buffer the buffer for the points of the room
      */
-    public RoomState(Room room) {
-      super(room);
-      // Save the points (is already a copy)
-      points = room.getPoints();
-      center = new Point2D.Float(room.getXCenter(), room.getYCenter());
-      nameOffset = new Point2D.Float(room.getNameXOffset(), room.getNameYOffset());
+    public RoomState(Room room, PointsBuffer buffer) {
+      super(room, buffer.add(room.getPoints()), buffer.reserveResults(2));
+      pointCount = (buffer.size - offset) / 2;
+      nameXOffset = room.getNameXOffset();
+      nameYOffset = room.getNameYOffset();
       nameAngle = room.getNameAngle();
-      areaOffset = new Point2D.Float(room.getAreaXOffset(), room.getAreaYOffset());
+      areaXOffset = room.getAreaXOffset();
+      areaYOffset = room.getAreaYOffset();
       areaAngle = room.getAreaAngle();
+
+      // Save the absolute text positions for the transformation
+      float xCenter = room.getXCenter();
+      float yCenter = room.getYCenter();
+      buffer.add(xCenter + nameXOffset, yCenter + nameYOffset);
+      buffer.add(xCenter + areaXOffset, yCenter + areaYOffset);
     }
 
     @Override
-    public void reset() {
-      object.setPoints(points);
-      object.setNameXOffset(nameOffset.x);
-      object.setNameYOffset(nameOffset.y);
-      object.setNameAngle(nameAngle);
-      object.setAreaXOffset(areaOffset.x);
-      object.setAreaYOffset(areaOffset.y);
-      object.setAreaAngle(areaAngle);
+    public void reset(float[] points) {
+      if (isPointsChanged(points, points, pointCount)) {
+        object.setPoints(toPoints(points, offset, pointCount));
+      }
+      setTexts(nameXOffset, nameYOffset, nameAngle, areaXOffset, areaYOffset, areaAngle);
+    }
+
+    private void setTexts(float newNameXOffset, float newNameYOffset, float newNameAngle, float newAreaXOffset,
+        float newAreaYOffset, float newAreaAngle) {
+      if (isChanged(object.getNameXOffset(), newNameXOffset)) {
+        object.setNameXOffset(newNameXOffset);
+      }
+      if (isChanged(object.getNameYOffset(), newNameYOffset)) {
+        object.setNameYOffset(newNameYOffset);
+      }
+      if (isChanged(object.getNameAngle(), newNameAngle)) {
+        object.setNameAngle(newNameAngle);
+      }
+      if (isChanged(object.getAreaXOffset(), newAreaXOffset)) {
+        object.setAreaXOffset(newAreaXOffset);
+      }
+      if (isChanged(object.getAreaYOffset(), newAreaYOffset)) {
+        object.setAreaYOffset(newAreaYOffset);
+      }
+      if (isChanged(object.getAreaAngle(), newAreaAngle)) {
+        object.setAreaAngle(newAreaAngle);
+      }
     }
 
     @Override
-    public void transform(TransformOptions transformOptions) {
-      AffineTransform transformation = transformOptions.getTransformation();
+    public void compute(TransformOptions transformOptions, float[] points, float[] transformedPoints, float[] results) {
+      results[resultsOffset] = transformOptions.transformTextAngle(nameAngle);
+      results[resultsOffset + 1] = transformOptions.transformTextAngle(areaAngle);
+    }
 
-      // Create a new array for modification
-      float[][] points = new float[this.points.length][];
-      for (int i = 0; i < points.length; i++) {
-        float[] newPoint = new float[2];
-        transformation.transform(this.points[i], 0, newPoint, 0, 1);
-        points[i] = newPoint;
+    @Override
+    public void apply(TransformOptions transformOptions, float[] points, float[] transformedPoints, float[] results) {
+      if (isPointsChanged(points, transformedPoints, pointCount)) {
+        object.setPoints(toPoints(transformedPoints, offset, pointCount));
       }
-      object.setPoints(points);
-      Point2D.Float newOffset = new Point2D.Float();
-      Point2D.Float namePoint = new Point2D.Float(center.x + nameOffset.x, center.y + nameOffset.y);
-      transformation.transform(namePoint, newOffset);
-      object.setNameXOffset(newOffset.x - object.getXCenter());
-      object.setNameYOffset(newOffset.y - object.getYCenter());
-      Point2D.Float areaPoint = new Point2D.Float(center.x + areaOffset.x, center.y + areaOffset.y);
-      transformation.transform(areaPoint, newOffset);
-      object.setAreaXOffset(newOffset.x - object.getXCenter());
-      object.setAreaYOffset(newOffset.y - object.getYCenter());
-      object.setNameAngle(transformOptions.transformTextAngle(nameAngle));
-      object.setAreaAngle(transformOptions.transformTextAngle(areaAngle));
+      int textOffset = offset + pointCount * 2;
+      float xCenter = object.getXCenter();
+      float yCenter = object.getYCenter();
+      setTexts(transformedPoints[textOffset] - xCenter, transformedPoints[textOffset + 1] - yCenter,
+        results[resultsOffset], transformedPoints[textOffset + 2] - xCenter, transformedPoints[textOffset + 3]
+            - yCenter, results[resultsOffset + 1]);
+    }
+
+    /**
+     * Uses the points of the room (not the texts).
+     */
+    @Override
+    public void addToBounds(float[] points, float[] bounds) {
+      extendBounds(bounds, points, offset, pointCount);
+    }
+
+    @Override
+    public void addToOutline(float[] points, GeneralPath outline) {
+      addLinesToOutline(outline, points, offset, pointCount, true);
     }
 
   }
 
   /**
    * Saves the state of a polyline.
+   * 
+   * The points of the polyline are saved in the points buffer.
    */
   private static final class PolylineState extends ObjectState<Polyline> {
-    private final float[][] points;
+    private final int pointCount;
 
     /**
      * Creates a new polyline state.
      *
      * @param polyline the associated polyline
+     * @param buffer the buffer for the points of the polyline
      */
-    public PolylineState(Polyline polyline) {
-      super(polyline);
-      points = polyline.getPoints();
+    public PolylineState(Polyline polyline, PointsBuffer buffer) {
+      super(polyline, buffer.add(polyline.getPoints()), 0);
+      pointCount = (buffer.size - offset) / 2;
     }
 
     @Override
-    public void reset() {
-      object.setPoints(points);
+    public void reset(float[] points) {
+      setPoints(points, points);
     }
 
     @Override
-    public void transform(TransformOptions transformOptions) {
-      AffineTransform transformation = transformOptions.getTransformation();
+    public void apply(TransformOptions transformOptions, float[] points, float[] transformedPoints, float[] results) {
+      setPoints(points, transformedPoints);
+    }
 
-      // Create a new array for modification
-      float[][] points = new float[this.points.length][];
-      for (int i = 0; i < points.length; i++) {
-        float[] newPoint = new float[2];
-        transformation.transform(this.points[i], 0, newPoint, 0, 1);
-        points[i] = newPoint;
+    private void setPoints(float[] points, float[] coordinates) {
+      if (isPointsChanged(points, coordinates, pointCount)) {
+        object.setPoints(toPoints(coordinates, offset, pointCount));
       }
-      object.setPoints(points);
+    }
+
+    @Override
+    public void addToBounds(float[] points, float[] bounds) {
+      extendBounds(bounds, points, offset, pointCount);
+    }
+
+    @Override
+    public void addToOutline(float[] points, GeneralPath outline) {
+      addLinesToOutline(outline, points, offset, pointCount, false);
     }
   }
 
   /**
    * Saves the state of a label.
+   * 
+   * The position of the label is saved in the points buffer.
    */
   private static final class LabelState extends ObjectState<Label> {
-    private final float x;
-    private final float y;
     private final float angle;
 
     /**
      * Creates a new label state.
      *
      * @param label the associated label
+     * @param buffer the buffer for the position of the label
      */
-    public LabelState(Label label) {
-      super(label);
-      // Save the point
-      x = label.getX();
-      y = label.getY();
+    public LabelState(Label label, PointsBuffer buffer) {
+      super(label, buffer.add(label.getX(), label.getY()), buffer.reserveResults(1));
       angle = label.getAngle();
     }
 
     @Override
-    public void reset() {
-      object.setX(x);
-      object.setY(y);
-      object.setAngle(angle);
+    public void reset(float[] points) {
+      setLabel(points[offset], points[offset + 1], angle);
+    }
+
+    private void setLabel(float x, float y, float newAngle) {
+      if (isChanged(object.getX(), x)) {
+        object.setX(x);
+      }
+      if (isChanged(object.getY(), y)) {
+        object.setY(y);
+      }
+      if (isChanged(object.getAngle(), newAngle)) {
+        object.setAngle(newAngle);
+      }
+    }
+
+    @Override
+    public void compute(TransformOptions transformOptions, float[] points, float[] transformedPoints, float[] results) {
+      results[resultsOffset] = transformOptions.transformTextAngle(angle);
     }
 
     @Override
-    public void transform(TransformOptions transformOptions) {
-      Point2D.Float point = new Point2D.Float(x, y);
-      transformOptions.getTransformation().transform(point, point);
-      object.setX(point.x);
-      object.setY(point.y);
-      object.setAngle(transformOptions.transformTextAngle(angle));
+    public void apply(TransformOptions transformOptions, float[] points, float[] transformedPoints, float[] results) {
+      setLabel(transformedPoints[offset], transformedPoints[offset + 1], results[resultsOffset]);
+    }
+
+    /**
+     * Uses the position of the label (not the text bounds).
+     */
+    @Override
+    public void addToBounds(float[] points, float[] bounds) {
+      extendBounds(bounds, points, offset, 1);
     }
 
   }
 
   /**
    * Saves the state of a dimension line.
+   * 
+   * The start and end point are saved in the points buffer.
    */
   private static final class DimensionState extends ObjectState<DimensionLine> {
-    private final Point2D.Float start;
-    private final Point2D.Float end;
-    private final float offset;
+    private final float dimensionOffset;
 
     /**
      * Creates a new dimension line state.
      * 
      * @param line the associated dimension line
+     * @param buffer the buffer for the points of the line
      */
-    public DimensionState(DimensionLine line) {
-      super(line);
-      // Save the current state
-      start = new Point2D.Float(line.getXStart(), line.getYStart());
-      end = new Point2D.Float(line.getXEnd(), line.getYEnd());
-      offset = line.getOffset();
+    public DimensionState(DimensionLine line, PointsBuffer buffer) {
+      super(line, buffer.add(line.getXStart(), line.getYStart()), buffer.reserveResults(2));
+      buffer.add(line.getXEnd(), line.getYEnd());
+      dimensionOffset = line.getOffset();
     }
 
     @Override
-    public void reset() {
-      object.setXStart(start.x);
-      object.setYStart(start.y);
-      object.setXEnd(end.x);
-      object.setYEnd(end.y);
-      object.setOffset(offset);
+    public void reset(float[] points) {
+      setLine(points[offset], points[offset + 1], points[offset + 2], points[offset + 3], dimensionOffset);
+    }
+
+    private void setLine(float xStart, float yStart, float xEnd, float yEnd, float newOffset) {
+      if (isChanged(object.getXStart(), xStart)) {
+        object.setXStart(xStart);
+      }
+      if (isChanged(object.getYStart(), yStart)) {
+        object.setYStart(yStart);
+      }
+      if (isChanged(object.getXEnd(), xEnd)) {
+        object.setXEnd(xEnd);
+      }
+      if (isChanged(object.getYEnd(), yEnd)) {
+        object.setYEnd(yEnd);
+      }
+      if (isChanged(object.getOffset(), newOffset)) {
+        object.setOffset(newOffset);
+      }
     }
 
     @Override
-    public void transform(TransformOptions transformOptions) {
-      AffineTransform transformation = transformOptions.getTransformation();
-      Point2D.Float transformStart = new Point2D.Float();
-      transformation.transform(start, transformStart);
-      Point2D.Float transformEnd = new Point2D.Float();
-      transformation.transform(end, transformEnd);
-      float newOffset = offset;
-      if (transformation.getScaleX() < 0 != transformation.getScaleY() < 0) {
+    public void compute(TransformOptions transformOptions, float[] points, float[] transformedPoints, float[] results) {
+      float newOffset = dimensionOffset;
+      if (transformOptions.isMirroring()) {
         // If this is a mirroring transformation adjust the offset sign
         newOffset = -newOffset;
       }
-      if (transformStart.x > transformEnd.x) {
+      boolean swapEnds = transformedPoints[offset] > transformedPoints[offset + 2];
+      if (swapEnds) {
         // Adjust line ends to keep text orientation
-        Point2D.Float tmp = transformStart;
-        transformStart = transformEnd;
-        transformEnd = tmp;
         newOffset = -newOffset;
       }
-      object.setXStart(transformStart.x);
-      object.setYStart(transformStart.y);
-      object.setXEnd(transformEnd.x);
-      object.setYEnd(transformEnd.y);
-      object.setOffset(newOffset);
+      results[resultsOffset] = newOffset;
+      results[resultsOffset + 1] = swapEnds ? 1 : 0;
+    }
+
+    @Override
+    public void apply(TransformOptions transformOptions, float[] points, float[] transformedPoints, float[] results) {
+      int start = offset;
+      int end = offset + 2;
+      if (results[resultsOffset + 1] != 0) {
+        start = end;
+        end = offset;
+      }
+      setLine(transformedPoints[start], transformedPoints[start + 1], transformedPoints[end],
+        transformedPoints[end + 1], results[resultsOffset]);
     }
 
     /**
-     * Return the start and end point of the line (not the bounding box).
+     * Uses the start and end point of the line (not the bounding box).
      */
     @Override
-    public float[][] getPoints() {
-      return new float[][] { { object.getXStart(), object.getYStart() }, { object.getXEnd(), object.getYEnd() } };
+    public void addToBounds(float[] points, float[] bounds) {
+      extendBounds(bounds, points, offset, 2);
+    }
+
+    @Override
+    public void addToOutline(float[] points, GeneralPath outline) {
+      addLinesToOutline(outline, points, offset, 2, false);
     }
 
   }
 
   /**
    * Saves the state of a furniture.
+   * 
+   * The center and the top right and bottom right corner are saved in the points buffer.
    */
   private static final class FurnitureState extends ObjectState<HomePieceOfFurniture> {
-    private final Point2D.Float center;
     private final float angle;
     private final float width;
     private final float depth;
     private final boolean isModelMirrored;
 
-    private final Point2D.Float topRight;
-    private final Point2D.Float bottomRight;
-
     /**
      * Creates a new furniture state.
      *
      * @param furniture the associated furniture
+     * @param buffer the buffer for the points of the furniture
      */
-    public FurnitureState(HomePieceOfFurniture furniture) {
-      super(furniture);
+    public FurnitureState(HomePieceOfFurniture furniture, PointsBuffer buffer) {
+      super(furniture, buffer.add(furniture.getX(), furniture.getY()), buffer.reserveResults(4));
       // Save the current state
-      center = new Point2D.Float(furniture.getX(), furniture.getY());
       angle = furniture.getAngle();
       width = furniture.getWidth();
       depth = furniture.getDepth();
       isModelMirrored = furniture.isModelMirrored();
 
       // Calculate the corners for later transformation
+      float x = furniture.getX();
+      float y = furniture.getY();
       float sin = (float) Math.sin(angle);
       float cos = (float) Math.cos(angle);
       float halfWidth = width / 2;
       float halfHeight = depth / 2;
-      topRight = new Point2D.Float(cos * halfWidth - sin * halfHeight + center.x, sin * halfWidth + cos * halfHeight
-          + center.y);
-      bottomRight = new Point2D.Float(cos * halfWidth + sin * halfHeight + center.x, sin * halfWidth - cos * halfHeight
-          + center.y);
+      buffer.add(cos * halfWidth - sin * halfHeight + x, sin * halfWidth + cos * halfHeight + y);
+      buffer.add(cos * halfWidth + sin * halfHeight + x, sin * halfWidth - cos * halfHeight + y);
     }
 
     @Override
-    public void reset() {
-      object.setAngle(angle);
-      object.setX(center.x);
-      object.setY(center.y);
-      object.setWidth(width);
-      object.setDepth(depth);
-      object.setModelMirrored(isModelMirrored);
+    public void reset(float[] points) {
+      setFurniture(points[offset], points[offset + 1], width, depth, angle, isModelMirrored);
     }
 
-    @Override
-    public void transform(TransformOptions transformOptions) {
-      AffineTransform transformation = transformOptions.getTransformation();
+    private void setFurniture(float x, float y, float newWidth, float newDepth, float newAngle,
+        boolean isNewModelMirrored) {
+      if (isChanged(object.getX(), x)) {
+        object.setX(x);
+      }
+      if (isChanged(object.getY(), y)) {
+        object.setY(y);
+      }
+      if (isChanged(object.getDepth(), newDepth)) {
+        object.setDepth(newDepth);
+      }
+      if (isChanged(object.getWidth(), newWidth)) {
+        object.setWidth(newWidth);
+      }
+      if (isChanged(object.isModelMirrored(), isNewModelMirrored)) {
+        object.setModelMirrored(isNewModelMirrored);
+      }
+      if (isChanged(object.getAngle(), newAngle)) {
+        object.setAngle(newAngle);
+      }
+    }
 
-      Point2D.Float newCenter = new Point2D.Float();
-      transformation.transform(center, newCenter);
-      object.setX(newCenter.x);
-      object.setY(newCenter.y);
+    @Override
+    public void compute(TransformOptions transformOptions, float[] points, float[] transformedPoints, float[] results) {
+      float centerX = transformedPoints[offset];
+      float centerY = transformedPoints[offset + 1];
 
       // Calculate the new width, height and angle
-      Point2D.Float newTopRight = new Point2D.Float();
-      transformation.transform(topRight, newTopRight);
-      Point2D.Float newBottomRight = new Point2D.Float();
-      transformation.transform(bottomRight, newBottomRight);
-      object.setDepth((float) newTopRight.distance(newBottomRight));
-      Point2D.Float newRight = new Point2D.Float((newTopRight.x + newBottomRight.x) / 2,
-          (newTopRight.y + newBottomRight.y) / 2);
-      object.setWidth((float) newCenter.distance(newRight) * 2);
-      float newAngle = (float) Math.atan2(newRight.y - newCenter.y, newRight.x - newCenter.x);
+      float topRightX = transformedPoints[offset + 2];
+      float topRightY = transformedPoints[offset + 3];
+      float bottomRightX = transformedPoints[offset + 4];
+      float bottomRightY = transformedPoints[offset + 5];
+      float rightX = (topRightX + bottomRightX) / 2;
+      float rightY = (topRightY + bottomRightY) / 2;
+      float newAngle = (float) Math.atan2(rightY - centerY, rightX - centerX);
       boolean isNewModelMirrored = isModelMirrored;
-      if (transformation.getScaleX() < 0 != transformation.getScaleY() < 0) {
+      if (transformOptions.isMirroring()) {
         // If this is a mirroring transformation adjust the angle and mirroring
         newAngle += Math.PI;
         if (newAngle >= Math.PI * 2) {
@@ -723,106 +1610,153 @@ public class TransformEdit extends AbstractObjectEdit<List<ObjectState<? extends
         }
         isNewModelMirrored = !isModelMirrored;
       }
-      object.setModelMirrored(isNewModelMirrored);
-      object.setAngle(newAngle);
+      results[resultsOffset] = (float) Point2D.distance(centerX, centerY, rightX, rightY) * 2;
+      results[resultsOffset + 1] = (float) Point2D.distance(topRightX, topRightY, bottomRightX, bottomRightY);
+      results[resultsOffset + 2] = newAngle;
+      results[resultsOffset + 3] = isNewModelMirrored ? 1 : 0;
+    }
+
+    @Override
+    public void apply(TransformOptions transformOptions, float[] points, float[] transformedPoints, float[] results) {
+      setFurniture(transformedPoints[offset], transformedPoints[offset + 1], results[resultsOffset],
+        results[resultsOffset + 1], results[resultsOffset + 2], results[resultsOffset + 3] != 0);
+    }
+
+    /**
+     * Uses the four corners of the furniture.
+     */
+    @Override
+    public void addToBounds(float[] points, float[] bounds) {
+      addCornersToBounds(points, offset, bounds);
+    }
+
+    @Override
+    public void addToOutline(float[] points, GeneralPath outline) {
+      addCornersToOutline(outline, points, offset);
     }
   }
 
   /**
    * Saves the state of the compass.
+   * 
+   * The center and the top right and bottom right corner are saved in the points buffer.
    */
   private static final class CompassState extends ObjectState<Compass> {
-    private final Point2D.Float center;
     private final float angle;
     private final float diameter;
 
-    private final Point2D.Float topRight;
-    private final Point2D.Float bottomRight;
-
     /**
      * Creates a new furniture state.
      *
      * @param compass the associated furniture
+     * @param buffer the buffer for the points of the compass
      */
-    public CompassState(Compass compass) {
-      super(compass);
+    public CompassState(Compass compass, PointsBuffer buffer) {
+      super(compass, buffer.add(compass.getX(), compass.getY()), buffer.reserveResults(2));
       // Save the current state
-      center = new Point2D.Float(compass.getX(), compass.getY());
       angle = compass.getNorthDirection();
       diameter = compass.getDiameter();
 
       // Calculate the corners for later transformation
       float radius = diameter / 2;
-      topRight = new Point2D.Float(center.x + radius, center.y - radius);
-      bottomRight = new Point2D.Float(center.x + radius, center.y + radius);
+      buffer.add(compass.getX() + radius, compass.getY() - radius);
+      buffer.add(compass.getX() + radius, compass.getY() + radius);
     }
 
     @Override
-    public void reset() {
-      object.setX(center.x);
-      object.setY(center.y);
-      object.setDiameter(diameter);
-      object.setNorthDirection(angle);
+    public void reset(float[] points) {
+      setCompass(points[offset], points[offset + 1], diameter, angle);
     }
 
-    @Override
-    public void transform(TransformOptions transformOptions) {
-      AffineTransform transformation = transformOptions.getTransformation();
+    private void setCompass(float x, float y, float newDiameter, float newAngle) {
+      if (isChanged(object.getX(), x)) {
+        object.setX(x);
+      }
+      if (isChanged(object.getY(), y)) {
+        object.setY(y);
+      }
+      if (isChanged(object.getDiameter(), newDiameter)) {
+        object.setDiameter(newDiameter);
+      }
+      if (isChanged(object.getNorthDirection(), newAngle)) {
+        object.setNorthDirection(newAngle);
+      }
+    }
 
-      Point2D.Float newCenter = new Point2D.Float();
-      transformation.transform(center, newCenter);
-      object.setX(newCenter.x);
-      object.setY(newCenter.y);
+    @Override
+    public void compute(TransformOptions transformOptions, float[] points, float[] transformedPoints, float[] results) {
+      float centerX = transformedPoints[offset];
+      float centerY = transformedPoints[offset + 1];
 
       // Calculate the new diameter and angle
-      Point2D.Float newTopRight = new Point2D.Float();
-      transformation.transform(topRight, newTopRight);
-      Point2D.Float newBottomRight = new Point2D.Float();
-      transformation.transform(bottomRight, newBottomRight);
-      Point2D.Float newRight = new Point2D.Float((newTopRight.x + newBottomRight.x) / 2,
-          (newTopRight.y + newBottomRight.y) / 2);
-      object.setDiameter((float) newCenter.distance(newRight) * 2);
-      object.setNorthDirection(angle + (float) Math.atan2(newRight.y - newCenter.y, newRight.x - newCenter.x));
+      float rightX = (transformedPoints[offset + 2] + transformedPoints[offset + 4]) / 2;
+      float rightY = (transformedPoints[offset + 3] + transformedPoints[offset + 5]) / 2;
+      results[resultsOffset] = (float) Point2D.distance(centerX, centerY, rightX, rightY) * 2;
+      results[resultsOffset + 1] = angle + (float) Math.atan2(rightY - centerY, rightX - centerX);
+    }
+
+    @Override
+    public void apply(TransformOptions transformOptions, float[] points, float[] transformedPoints, float[] results) {
+      setCompass(transformedPoints[offset], transformedPoints[offset + 1], results[resultsOffset],
+        results[resultsOffset + 1]);
+    }
+
+    /**
+     * Uses the four corners of the compass.
+     */
+    @Override
+    public void addToBounds(float[] points, float[] bounds) {
+      addCornersToBounds(points, offset, bounds);
+    }
+
+    @Override
+    public void addToOutline(float[] points, GeneralPath outline) {
+      addCornersToOutline(outline, points, offset);
     }
   }
 
   /**
    * Saves the state of the camera.
+   * 
+   * The position of the camera is saved in the points buffer.
    */
   private static final class CameraState extends ObjectState<ObserverCamera> {
-    private final Point2D.Float point;
 
     /**
      * Creates a new camera state.
      *
      * @param camera the associated camera
+     * @param buffer the buffer for the position of the camera
      */
-    public CameraState(ObserverCamera camera) {
-      super(camera);
-      // Save the current state
-      point = new Point2D.Float(camera.getX(), camera.getY());
+    public CameraState(ObserverCamera camera, PointsBuffer buffer) {
+      super(camera, buffer.add(camera.getX(), camera.getY()), 0);
     }
 
     @Override
-    public void reset() {
-      object.setX(point.x);
-      object.setY(point.y);
+    public void reset(float[] points) {
+      setLocation(points[offset], points[offset + 1]);
     }
 
     @Override
-    public void transform(TransformOptions transformOptions) {
-      Point2D.Float result = new Point2D.Float();
-      transformOptions.getTransformation().transform(point, result);
-      object.setX(result.x);
-      object.setY(result.y);
+    public void apply(TransformOptions transformOptions, float[] points, float[] transformedPoints, float[] results) {
+      setLocation(transformedPoints[offset], transformedPoints[offset + 1]);
+    }
+
+    private void setLocation(float x, float y) {
+      if (isChanged(object.getX(), x)) {
+        object.setX(x);
+      }
+      if (isChanged(object.getY(), y)) {
+        object.setY(y);
+      }
     }
 
     /**
-     * Return the position of the camera (not the bounding box).
+     * Uses the position of the camera (not the bounding box).
      */
     @Override
-    public float[][] getPoints() {
-      return new float[][] { { object.getX(), object.getY() } };
+    public void addToBounds(float[] points, float[] bounds) {
+      extendBounds(bounds, points, offset, 1);
     }
   }
 
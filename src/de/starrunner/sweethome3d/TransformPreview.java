@@ -0,0 +1,134 @@
+package de.starrunner.sweethome3d;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+
+import javax.swing.JComponent;
+import javax.swing.UIManager;
+
+/**
+ * Shows a preview of the outlines of the objects of a {@link TransformEdit}, before and after a transformation.
+ *
+ * The preview is independent of the model, so it is fast even for huge selections.
+ *
+ * Copyright (c) 2016 by Tobias Liefke
+ *
+ * @author Tobias Liefke
+ */
+public class TransformPreview extends JComponent {
+  private static final long serialVersionUID = -4217734081364592710L;
+
+  private Shape outline;
+  private AffineTransform transformation = new AffineTransform();
+  private Shape transformedOutline;
+
+  /**
+   * Creates a new instance of TransformPreview.
+   */
+  public TransformPreview() {
+    setPreferredSize(new Dimension(180, 180));
+    setBorder(UIManager.getBorder("ScrollPane.border"));
+  }
+
+  /**
+   * Sets the edit that contains the outlines of the objects.
+   *
+   * @param edit the edit
+   */
+  public void setEdit(TransformEdit edit) {
+    this.outline = edit.getOutline();
+    this.transformedOutline = null;
+    repaint();
+  }
+
+  /**
+   * The current transformation of the outlines.
+   *
+   * @return the transformation
+   */
+  public AffineTransform getTransformation() {
+    return transformation;
+  }
+
+  /**
+   * Sets the transformation of the outlines.
+   *
+   * @param transformation the new transformation
+   */
+  public void setTransformation(AffineTransform transformation) {
+    this.transformation = transformation;
+    this.transformedOutline = null;
+    repaint();
+  }
+
+  /**
+   * @see JComponent#paintComponent(Graphics)
+   */
+  @Override
+  protected void paintComponent(Graphics g) {
+    super.paintComponent(g);
+    if (g instanceof Graphics2D && outline != null) {
+      if (transformedOutline == null) {
+        transformedOutline = transformation.createTransformedShape(outline);
+      }
+
+      // Create a new graphics object
+      Graphics2D g2D = (Graphics2D) g.create();
+      try {
+        // Create and apply the transformation
+        AffineTransform transform = createTransformation();
+        if (transform == null) {
+          return;
+        }
+        g2D.transform(transform);
+        float scale = (float) transform.getScaleX();
+
+        // First draw the original outline
+        g2D.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2D.setStroke(new BasicStroke(1f / scale, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+        g2D.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.5f));
+        g2D.setColor(Color.GRAY);
+        g2D.draw(outline);
+
+        // And now the transformed outline
+        g2D.setPaintMode();
+        g2D.setColor(getForeground());
+        g2D.setStroke(new BasicStroke(1.5f / scale, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+        g2D.draw(transformedOutline);
+      } finally {
+        g2D.dispose();
+      }
+    }
+  }
+
+  /**
+   * Creates the transformation of the plan coordinates to the component, so that both outlines are visible.
+   *
+   * @return the transformation or {@code null} if nothing is visible
+   */
+  private AffineTransform createTransformation() {
+    Rectangle2D bounds = outline.getBounds2D().createUnion(transformedOutline.getBounds2D());
+    if (bounds.getWidth() == 0 && bounds.getHeight() == 0) {
+      return null;
+    }
+
+    Insets insets = getInsets();
+    int width = getWidth() - (insets.left + insets.right) - 16;
+    int height = getHeight() - (insets.top + insets.bottom) - 16;
+
+    // Move to the center of the component
+    AffineTransform transform = AffineTransform.getTranslateInstance(insets.left + 8 + width / 2d, insets.top + 8
+        + height / 2d);
+
+    // Now calculate the scale to fit both outlines in the preview
+    double scale = Math.min(bounds.getWidth() == 0 ? Double.MAX_VALUE : width / bounds.getWidth(),
+      bounds.getHeight() == 0 ? Double.MAX_VALUE : height / bounds.getHeight());
+    transform.scale(scale, scale);
+
+    // And position the outlines
+    transform.translate(-bounds.getCenterX(), -bounds.getCenterY());
+    return transform;
+  }
+
+}
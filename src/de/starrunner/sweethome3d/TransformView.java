@@ -0,0 +1,276 @@
+package de.starrunner.sweethome3d;
+
+import java.awt.GridBagConstraints;
+import java.awt.Insets;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.geom.AffineTransform;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.JCheckBox;
+import javax.swing.SwingWorker;
+import javax.swing.undo.UndoableEditSupport;
+
+import com.eteks.sweethome3d.model.Home;
+import com.eteks.sweethome3d.model.UserPreferences;
+
+import de.starrunner.util.strings.Mnemonics;
+
+/**
+ * Base class for all dialogs that apply a {@link TransformEdit} to the selected objects.
+ *
+ * Shows a preview of the outlines of the transformed objects. If "preview outlines only" is selected, the model is
+ * only changed when the dialog is confirmed, otherwise any change is shown immediately in the model as well.
+ * 
+ * The geometry for the model is calculated in the background and written to the model in the event dispatch thread
+ * afterwards. Any calculation that is obsolete because of a newer input is canceled.
+ *
+ * Copyright (c) 2016 by Tobias Liefke
+ *
+ * @author Tobias Liefke
+ */
+public abstract class TransformView extends ImmediateEditDialogView {
+  private static final long serialVersionUID = 2829404773617052251L;
+
+  /** The minimum count of selected objects, before only the outlines are previewed by default. */
+  private static int outlinePreviewThreshold = Integer.getInteger(
+    "de.starrunner.sweethome3d.outlinePreviewThreshold", 500);
+
+  private TransformEdit currentEdit;
+
+  /** The calculation of the geometry for the latest input, if not applied yet. */
+  private SwingWorker<TransformEdit.Geometry, Void> currentWorker;
+
+  /** Indicates that a transformation was written to the model since the edit started or was reset. */
+  private boolean applied;
+
+  private TransformPreview preview;
+  private JCheckBox outlinePreviewButton;
+
+  /**
+   * Creates a new instance of a TransformView.
+   *
+   * @param title the title of the dialog
+   * @param home the application
+   * @param preferences the current configuration
+   * @param undoSupport used for undo support of the current action
+   */
+  public TransformView(String title, Home home, UserPreferences preferences, UndoableEditSupport undoSupport) {
+    super(title, home, preferences, undoSupport);
+  }
+
+  /**
+   * The minimum count of selected objects, before only the outlines are previewed by default.
+   *
+   * @return the count of objects
+   */
+  public static int getOutlinePreviewThreshold() {
+    return outlinePreviewThreshold;
+  }
+
+  /**
+   * Sets the minimum count of selected objects, before only the outlines are previewed by default.
+   *
+   * @param outlinePreviewThreshold the count of objects, 0 to always preview the outlines only
+   */
+  public static void setOutlinePreviewThreshold(int outlinePreviewThreshold) {
+    TransformView.outlinePreviewThreshold = outlinePreviewThreshold;
+  }
+
+  /**
+   * Adds the preview and the preview options below the other components.
+   *
+   * @param gridy the first free row of the dialog
+   */
+  protected void addPreviewComponents(int gridy) {
+    preview = new TransformPreview();
+    add(preview, new GridBagConstraints(0, gridy, GridBagConstraints.REMAINDER, 1, 1.0, 1.0,
+        GridBagConstraints.CENTER, GridBagConstraints.BOTH, new Insets(5, 0, 0, 0), 0, 0));
+    outlinePreviewButton = Mnemonics.configure(new JCheckBox(Msg.msg("TransformView.outlinePreviewLabel")));
+    outlinePreviewButton.addActionListener(new ActionListener() {
+      @Override
+      public void actionPerformed(ActionEvent e) {
+        if (currentEdit != null) {
+          if (outlinePreviewButton.isSelected()) {
+            // Restore the model, as only the outlines are shown from now on
+            cancelWorker();
+            currentEdit.reset();
+            applied = false;
+          } else {
+            applyLazy();
+          }
+        }
+      }
+    });
+    add(outlinePreviewButton, new GridBagConstraints(0, gridy + 1, GridBagConstraints.REMAINDER, 1, 0, 0,
+        GridBagConstraints.LINE_START, GridBagConstraints.NONE, new Insets(5, 0, 0, 0), 0, 0));
+  }
+
+  /**
+   * Creates the edit for the currently selected objects and initializes the preview.
+   *
+   * @return the new edit
+   */
+  protected TransformEdit startEdit() {
+    currentEdit = new TransformEdit(getTitle(), home);
+    applied = false;
+    if (preview != null) {
+      preview.setEdit(currentEdit);
+      outlinePreviewButton.setSelected(currentEdit.getTarget().size() >= outlinePreviewThreshold);
+    }
+    return currentEdit;
+  }
+
+  /**
+   * Indicates that only the outlines are previewed and the model is changed when the dialog is confirmed.
+   *
+   * @return {@code true} if the model is not changed before the dialog is confirmed
+   */
+  protected boolean isOutlinePreview() {
+    return outlinePreviewButton != null && outlinePreviewButton.isSelected();
+  }
+
+  /**
+   * Creates the transformation from the current input.
+   *
+   * @return the transformation or {@code null} if the input is invalid
+   */
+  protected abstract AffineTransform createTransformation();
+
+  /**
+   * Indicates to rotate/flip text (labels, etc).
+   *
+   * @return {@code true} if the texts are transformed as well
+   */
+  protected boolean isRotateText() {
+    return true;
+  }
+
+  /**
+   * Indicates to adjust the text orientation after rotation/flipping.
+   *
+   * @return {@code true} if the texts are kept readable
+   */
+  protected boolean isAdjustText() {
+    return true;
+  }
+
+  /**
+   * Shows the current transformation in the preview and, if not only the outlines are previewed, in the model.
+   * 
+   * The geometry for the model is calculated in the background, any running calculation is canceled.
+   */
+  @Override
+  protected void apply() {
+    AffineTransform transformation = createTransformation();
+    if (transformation != null) {
+      if (preview != null) {
+        preview.setTransformation(transformation);
+      }
+      if (!isOutlinePreview()) {
+        cancelWorker();
+        currentWorker = new TransformWorker(transformation, isRotateText(), isAdjustText());
+        currentWorker.execute();
+      }
+    }
+  }
+
+  /**
+   * Cancels the calculation of the geometry, if any is running.
+   */
+  private void cancelWorker() {
+    if (currentWorker != null) {
+      currentWorker.cancel(true);
+      currentWorker = null;
+    }
+  }
+
+  /**
+   * Applies the transformation of the latest input to the model, unless the model contains it already.
+   * 
+   * Runs in the current thread, as the edit is posted afterwards.
+   */
+  @Override
+  protected void commit() {
+    // No need to wait for the timer or any calculation in the background
+    super.cancel();
+    cancelWorker();
+    AffineTransform transformation = createTransformation();
+    if (transformation != null) {
+      if (!applied || !currentEdit.isTransformed(transformation, isRotateText(), isAdjustText())) {
+        currentEdit.transform(transformation, isRotateText(), isAdjustText());
+      }
+      applied = true;
+    }
+  }
+
+  /**
+   * Posts the edit only if a transformation was written to the model, which is not the case for an invalid input
+   * with the outline preview.
+   */
+  @Override
+  protected boolean isEditPosted() {
+    return applied;
+  }
+
+  /**
+   * Discards any running calculation.
+   */
+  @Override
+  protected void cancel() {
+    super.cancel();
+    cancelWorker();
+  }
+
+  /**
+   * Calculates the geometry of a transformation in the background and applies it in the event dispatch thread.
+   */
+  private final class TransformWorker extends SwingWorker<TransformEdit.Geometry, Void> {
+    private final AffineTransform transformation;
+    private final boolean rotateText;
+    private final boolean adjustText;
+
+    /**
+     * Creates a new worker for the given transformation.
+     *
+     * @param transformation the affine transformation
+     * @param rotateText whether rotate/flip text (labels, etc)
+     * @param adjustText whether adjust text orientation after rotation/flipping
+     */
+    public TransformWorker(AffineTransform transformation, boolean rotateText, boolean adjustText) {
+      this.transformation = transformation;
+      this.rotateText = rotateText;
+      this.adjustText = adjustText;
+    }
+
+    @Override
+    protected TransformEdit.Geometry doInBackground() {
+      return currentEdit.compute(transformation, rotateText, adjustText);
+    }
+
+    @Override
+    protected void done() {
+      // Ignore any result that was replaced by a newer input in the meantime
+      if (currentWorker != this || isCancelled()) {
+        return;
+      }
+      currentWorker = null;
+      try {
+        currentEdit.apply(get());
+        applied = true;
+      } catch (CancellationException e) {
+        // Canceled by a newer input
+        return;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        throw new IllegalStateException(e.getCause());
+      }
+    }
+  }
+
+}